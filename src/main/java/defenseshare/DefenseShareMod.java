@@ -2,21 +2,34 @@ package defenseshare;
 
 import basemod.BaseMod;
 import basemod.interfaces.PostInitializeSubscriber;
-import basemod.interfaces.OnCardUseSubscriber;
 import basemod.interfaces.OnStartBattleSubscriber;
 import basemod.interfaces.PostBattleSubscriber;
 import basemod.interfaces.StartGameSubscriber;
-import basemod.interfaces.PostDrawSubscriber;
+import basemod.interfaces.PreUpdateSubscriber;
 import com.evacipated.cardcrawl.modthespire.lib.SpireInitializer;
-import com.megacrit.cardcrawl.cards.AbstractCard;
 import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
 import com.megacrit.cardcrawl.rooms.AbstractRoom;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import defenseshare.config.ModConfig;
+import defenseshare.patches.BlockActionRedirectPatch;
+import defenseshare.patches.CardTargetingPatch;
+import defenseshare.net.ShareNetwork;
+import defenseshare.patches.GainBlockPatch;
+import defenseshare.telemetry.ShareTelemetry;
+import defenseshare.util.AllyHitboxIndex;
+import defenseshare.util.AllyIndicatorCache;
 import defenseshare.util.AllyManager;
+import defenseshare.util.AllyOverlay;
+import defenseshare.util.BlockPrediction;
+import defenseshare.util.BlockProjection;
 import defenseshare.util.DefenseCardDetector;
+import defenseshare.util.FrameContext;
+import defenseshare.util.HandIndex;
+import defenseshare.util.SlotTargeting;
+import defenseshare.util.ThreatIndex;
 
 /**
  * Defense Share Mod - Together in Spire Addon
@@ -29,11 +42,10 @@ import defenseshare.util.DefenseCardDetector;
 @SpireInitializer
 public class DefenseShareMod implements
         PostInitializeSubscriber,
-        OnCardUseSubscriber,
         OnStartBattleSubscriber,
         PostBattleSubscriber,
         StartGameSubscriber,
-        PostDrawSubscriber {
+        PreUpdateSubscriber {
 
     public static final Logger logger = LogManager.getLogger(DefenseShareMod.class.getName());
     public static final String MOD_ID = "DefenseShareMod";
@@ -55,37 +67,45 @@ public class DefenseShareMod implements
     public void receivePostInitialize() {
         logger.info("Defense Share Mod - Post Initialize");
 
-        // Detectar si Together in Spire está cargado (una sola vez)
-        togetherInSpireLoaded = detectTogetherInSpire();
+        // Detectar proveedores de aliados (Together in Spire...) una sola vez
+        AllyManager.initialize();
+        togetherInSpireLoaded = AllyManager.hasActiveProviders();
 
         if (togetherInSpireLoaded) {
-            logger.info("Together in Spire detectado - mod activo");
+            logger.info("Proveedor de aliados detectado - mod activo");
         } else {
-            logger.info("Together in Spire no detectado - mod en espera");
+            logger.info("Ningún proveedor de aliados detectado - mod en espera");
         }
 
         // Inicializar componentes
+        ModConfig.initialize();
+        ShareTelemetry.initialize();
+        ShareNetwork.initialize();
+        BlockPrediction.initialize();
         DefenseCardDetector.initialize();
-        AllyManager.initialize();
+        BlockActionRedirectPatch.initialize();
+        DefenseCardDetector.classifyCardLibrary();
     }
 
-    /**
-     * Detecta si Together in Spire está cargado
-     */
-    private boolean detectTogetherInSpire() {
-        String[] classNames = {
-            "spireTogether.SpireTogetherMod",
-            "togetherinspire.TogetherInSpire",
-            "tis.TogetherInSpire"
-        };
-
-        for (String className : classNames) {
-            try {
-                Class.forName(className);
-                return true;
-            } catch (ClassNotFoundException ignored) {}
+    @Override
+    public void receivePreUpdate() {
+        // Detectar entradas/salidas de jugadores antes de capturar el frame
+        AllyManager.pollRosterChanges();
+
+        // Estado compartido por todos los patches durante este frame
+        FrameContext.capture();
+        CardTargetingPatch.updateHandTargets(FrameContext.current());
+        SlotTargeting.update(FrameContext.current());
+        AllyManager.updateHover(FrameContext.current());
+
+        // Shares del frame anterior en un único frame de red
+        ShareNetwork.flush();
+        BlockPrediction.update();
+
+        // Rehornear el indicador fuera del render si cambió la escala o el idioma
+        if (FrameContext.current().isSharingAvailable()) {
+            AllyIndicatorCache.update();
         }
-        return false;
     }
 
     // === Eventos para invalidar cache ===
@@ -94,32 +114,34 @@ public class DefenseShareMod implements
     public void receiveOnBattleStart(AbstractRoom room) {
         // Invalidar cache al inicio de cada combate
         AllyManager.invalidateCache();
+        HandIndex.markDirty();
+        BlockProjection.onPowersChanged();
+        AllyHitboxIndex.markDirty();
+        AllyOverlay.markDirty();
     }
 
     @Override
     public void receivePostBattle(AbstractRoom room) {
         // Invalidar cache al terminar combate
         AllyManager.invalidateCache();
+        HandIndex.markDirty();
+        CardTargetingPatch.reset();
+        GainBlockPatch.reset();
+        BlockPrediction.reset();
+        ShareNetwork.reset();
+        // Al terminar y no al empezar: los intents iniciales se crean antes de OnStartBattle
+        ThreatIndex.reset();
     }
 
     @Override
     public void receiveStartGame() {
         // Invalidar cache al iniciar partida
         AllyManager.invalidateCache();
-    }
-
-    @Override
-    public void receivePostDraw(AbstractCard card) {
-        // Invalidar cache cuando se roba una carta (por si cambió el estado de aliados)
-        AllyManager.invalidateCache();
-    }
-
-    @Override
-    public void receiveCardUsed(AbstractCard card) {
-        // Limpiar estado después de usar carta de defensa
-        if (DefenseCardDetector.isDefenseCard(card)) {
-            defenseshare.patches.GainBlockPatch.clearTargetAlly();
-        }
+        CardTargetingPatch.reset();
+        GainBlockPatch.reset();
+        BlockPrediction.reset();
+        ShareNetwork.reset();
+        ThreatIndex.reset();
     }
 
     // === Getters estáticos ===
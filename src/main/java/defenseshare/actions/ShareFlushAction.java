@@ -0,0 +1,22 @@
+package defenseshare.actions;
+
+import com.megacrit.cardcrawl.actions.AbstractGameAction;
+
+import defenseshare.patches.GainBlockPatch;
+
+/**
+ * Última acción de una carta compartida: aplica al aliado todo el block
+ * acumulado durante la cadena de acciones de la carta
+ */
+public class ShareFlushAction extends AbstractGameAction {
+
+    public ShareFlushAction() {
+        this.actionType = ActionType.SPECIAL;
+    }
+
+    @Override
+    public void update() {
+        GainBlockPatch.flushShare();
+        this.isDone = true;
+    }
+}
@@ -0,0 +1,69 @@
+package defenseshare.ally;
+
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+
+import java.util.List;
+
+/**
+ * Fuente de aliados a los que se puede compartir defensa.
+ *
+ * Las implementaciones se descubren con ServiceLoader
+ * (META-INF/services/defenseshare.ally.AllyProvider), así que otros mods
+ * pueden añadir las suyas. Solo se usan los proveedores cuyo isInstalled()
+ * devuelve true; el resto nunca se inicializa ni se consulta.
+ */
+public interface AllyProvider {
+
+    /**
+     * Sin id de red conocido
+     */
+    int NO_PLAYER = -1;
+
+    /**
+     * Nombre para el log
+     */
+    String getName();
+
+    /**
+     * Indica si el mod del que depende está instalado.
+     * Debe ser barato y no cargar clases de ese mod.
+     */
+    boolean isInstalled();
+
+    /**
+     * Se llama una vez, solo si isInstalled() devolvió true
+     */
+    void initialize();
+
+    /**
+     * Añade a la lista los aliados actuales (sin el jugador local, sin duplicados)
+     */
+    void collectAllies(List<AbstractCreature> out);
+
+    /**
+     * Indica si la criatura es un aliado de este proveedor (por ejemplo, un jugador de red)
+     */
+    boolean isAlly(AbstractCreature creature);
+
+    /**
+     * Id de red del jugador que controla la criatura, igual en todos los clientes
+     * (lo usa ShareNetwork para nombrar al destino de un share), o NO_PLAYER
+     */
+    default int getPlayerId(AbstractCreature creature) {
+        return NO_PLAYER;
+    }
+
+    /**
+     * Aliado al que apunta el intent del monstruo, o null si apunta al jugador
+     * local o el proveedor no lo sabe (ThreatIndex le atribuye entonces el daño)
+     */
+    default AbstractCreature getIntentTarget(AbstractMonster monster) {
+        return null;
+    }
+
+    /**
+     * Valor barato que cambia cuando entran o salen jugadores; se consulta una vez por frame
+     */
+    int getRosterStamp();
+}
@@ -0,0 +1,53 @@
+package defenseshare.ally;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Descubrimiento de los AllyProvider registrados con ServiceLoader.
+ * Sin dependencias del juego: solo llama a isInstalled() e initialize().
+ */
+public final class AllyProviders {
+
+    private static final Logger logger = LogManager.getLogger(AllyProviders.class.getName());
+
+    private AllyProviders() {}
+
+    /**
+     * Proveedores registrados en el class loader, en orden de registro;
+     * incluidos los no instalados
+     */
+    public static List<AllyProvider> loadAll(ClassLoader classLoader) {
+        List<AllyProvider> all = new ArrayList<>();
+        for (AllyProvider provider : ServiceLoader.load(AllyProvider.class, classLoader)) {
+            all.add(provider);
+        }
+        return all;
+    }
+
+    /**
+     * Inicializa y devuelve los proveedores instalados. Los que no lo están, o
+     * fallan al inicializarse, se omiten.
+     */
+    public static List<AllyProvider> loadInstalled(ClassLoader classLoader) {
+        List<AllyProvider> installed = new ArrayList<>();
+        for (AllyProvider provider : loadAll(classLoader)) {
+            try {
+                if (!provider.isInstalled()) {
+                    logger.debug("Proveedor de aliados no instalado: " + provider.getName());
+                    continue;
+                }
+                provider.initialize();
+                installed.add(provider);
+                logger.info("Proveedor de aliados activo: " + provider.getName());
+            } catch (RuntimeException | LinkageError e) {
+                logger.warn("Error inicializando proveedor " + provider.getClass().getName() + ": " + e.getMessage());
+            }
+        }
+        return installed;
+    }
+}
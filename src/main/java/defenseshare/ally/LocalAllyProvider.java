@@ -0,0 +1,87 @@
+package defenseshare.ally;
+
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proveedor local para probar el mod sin lobby de Steam.
+ * Solo se activa con -Ddefenseshare.localAllies=true; los aliados se
+ * añaden desde código (consola de depuración, otro mod de pruebas...).
+ */
+public class LocalAllyProvider implements AllyProvider {
+
+    public static final String ENABLE_PROPERTY = "defenseshare.localAllies";
+
+    private static final List<AbstractCreature> allies = new ArrayList<>();
+    private static final Map<AbstractCreature, Integer> playerIds = new IdentityHashMap<>();
+    private static int nextPlayerId = 1;
+    private static int stamp = 0;
+
+    public static void addAlly(AbstractCreature creature) {
+        if (creature != null && !allies.contains(creature)) {
+            allies.add(creature);
+            playerIds.put(creature, nextPlayerId++);
+            stamp++;
+        }
+    }
+
+    public static void removeAlly(AbstractCreature creature) {
+        if (allies.remove(creature)) {
+            playerIds.remove(creature);
+            stamp++;
+        }
+    }
+
+    public static void clearAllies() {
+        allies.clear();
+        playerIds.clear();
+        stamp++;
+    }
+
+    @Override
+    public String getName() {
+        return "Local";
+    }
+
+    @Override
+    public boolean isInstalled() {
+        return Boolean.getBoolean(ENABLE_PROPERTY);
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public void collectAllies(List<AbstractCreature> out) {
+        for (AbstractCreature creature : allies) {
+            if (creature != AbstractDungeon.player && creature.currentHealth > 0 && !out.contains(creature)) {
+                out.add(creature);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAlly(AbstractCreature creature) {
+        return allies.contains(creature);
+    }
+
+    /**
+     * Ids por orden de alta, estables mientras el aliado siga en la lista
+     */
+    @Override
+    public int getPlayerId(AbstractCreature creature) {
+        Integer id = playerIds.get(creature);
+        return id != null ? id : NO_PLAYER;
+    }
+
+    @Override
+    public int getRosterStamp() {
+        return stamp;
+    }
+}
@@ -0,0 +1,133 @@
+package defenseshare.ally;
+
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+
+import defenseshare.util.TisAccess;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aliados de Together in Spire: las entidades Network* de SpireTogetherMod
+ */
+public class TogetherInSpireAllyProvider implements AllyProvider {
+
+    // Clase principal de TiS según la versión (los mismos nombres que comprobaba la detección original)
+    private static final String[] TIS_CLASS_RESOURCES = {
+        "spireTogether/SpireTogetherMod.class",
+        "togetherinspire/TogetherInSpire.class",
+        "tis/TogetherInSpire.class"
+    };
+    private static final String NETWORK_PREFIX = "spireTogether.monsters.playerChars.Network";
+
+    // Clasificación cacheada por clase: el prefijo se compara una sola vez por Class
+    private static final ClassValue<Boolean> NETWORK_CLASSES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.getName().startsWith(NETWORK_PREFIX);
+        }
+    };
+
+    @Override
+    public String getName() {
+        return "Together in Spire";
+    }
+
+    @Override
+    public boolean isInstalled() {
+        // Buscar el recurso no carga ni inicializa la clase
+        ClassLoader classLoader = TogetherInSpireAllyProvider.class.getClassLoader();
+        for (String resource : TIS_CLASS_RESOURCES) {
+            if (classLoader.getResource(resource) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void initialize() {
+        TisAccess.logShape();
+    }
+
+    @Override
+    public void collectAllies(List<AbstractCreature> out) {
+        Map<?, ?> map = TisAccess.getCharacterEntities();
+        if (map != null) {
+            for (Object value : map.values()) {
+                addIfValid(value, out);
+            }
+        }
+
+        if (out.isEmpty() && TisAccess.hasPlayersMethod()) {
+            Object players = TisAccess.getPlayers();
+            if (players instanceof Map) {
+                for (Object value : ((Map<?, ?>) players).values()) {
+                    addIfValid(value, out);
+                }
+            } else if (players instanceof List) {
+                for (Object value : (List<?>) players) {
+                    addIfValid(value, out);
+                }
+            }
+        }
+    }
+
+    private void addIfValid(Object value, List<AbstractCreature> out) {
+        if (value instanceof AbstractCreature) {
+            AbstractCreature creature = (AbstractCreature) value;
+            // Filtrar: no el jugador actual, con vida, y del paquete Network*
+            if (creature != AbstractDungeon.player && creature.currentHealth > 0 &&
+                isAlly(creature) && !out.contains(creature)) {
+                out.add(creature);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAlly(AbstractCreature creature) {
+        return creature != null && isNetworkClass(creature.getClass());
+    }
+
+    /**
+     * Clase de jugador de red de TiS (spireTogether.monsters.playerChars.Network*)
+     */
+    static boolean isNetworkClass(Class<?> type) {
+        return NETWORK_CLASSES.get(type);
+    }
+
+    /**
+     * Clave de la criatura en el mapa de entidades de TiS (id del jugador en el lobby)
+     */
+    @Override
+    public int getPlayerId(AbstractCreature creature) {
+        Map<?, ?> map = TisAccess.getCharacterEntities();
+        if (map == null || creature == null) {
+            return NO_PLAYER;
+        }
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() == creature && entry.getKey() instanceof Number) {
+                return ((Number) entry.getKey()).intValue();
+            }
+        }
+        return NO_PLAYER;
+    }
+
+    /**
+     * TiS no expone a qué jugador apunta el intent de cada monstruo: se deja el
+     * valor por defecto y ThreatIndex atribuye el daño al jugador local. El
+     * peligro de los aliados de TiS sale solo de su vida efectiva.
+     */
+    @Override
+    public AbstractCreature getIntentTarget(AbstractMonster monster) {
+        return null;
+    }
+
+    @Override
+    public int getRosterStamp() {
+        Map<?, ?> map = TisAccess.getCharacterEntities();
+        return map != null ? map.size() : -1;
+    }
+}
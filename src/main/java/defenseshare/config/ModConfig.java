@@ -3,12 +3,14 @@ package defenseshare.config;
 import basemod.ModLabel;
 import basemod.ModPanel;
 import basemod.BaseMod;
+import basemod.IUIElement;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.evacipated.cardcrawl.modthespire.lib.SpireConfig;
 import com.megacrit.cardcrawl.core.Settings;
 import com.megacrit.cardcrawl.helpers.FontHelper;
-import com.megacrit.cardcrawl.helpers.ImageMaster;
+
+import defenseshare.util.ModAtlas;
 
 import java.io.IOException;
 import java.util.Properties;
@@ -86,11 +88,11 @@ public class ModConfig {
      * Crea el panel de configuración del mod para BaseMod
      */
     public static ModPanel createConfigPanel() {
-        // Crear textura de fondo (placeholder)
-        Texture badgeTexture = ImageMaster.loadImage("images/badge.png");
-
         ModPanel settingsPanel = new ModPanel();
 
+        // Badge del mod, desde el atlas ya cargado (sin leer del disco)
+        settingsPanel.addUIElement(new BadgeImage(330.0f, 715.0f, 48.0f));
+
         // Título
         ModLabel titleLabel = new ModLabel(
             "Defense Share - Configuración",
@@ -129,4 +131,38 @@ public class ModConfig {
 
         return settingsPanel;
     }
+
+    /**
+     * Elemento del panel que dibuja el badge de ModAtlas
+     */
+    private static class BadgeImage implements IUIElement {
+        private final float x;
+        private final float y;
+        private final float size;
+
+        BadgeImage(float x, float y, float size) {
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        @Override
+        public void render(SpriteBatch sb) {
+            sb.setColor(Color.WHITE);
+            sb.draw(ModAtlas.getBadge(), x * Settings.scale, y * Settings.scale, size * Settings.scale, size * Settings.scale);
+        }
+
+        @Override
+        public void update() {}
+
+        @Override
+        public int renderLayer() {
+            return 1;
+        }
+
+        @Override
+        public int updateOrder() {
+            return 1;
+        }
+    }
 }
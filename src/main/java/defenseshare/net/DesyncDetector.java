@@ -0,0 +1,217 @@
+package defenseshare.net;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Detección de desincronizaciones del block compartido entre clientes.
+ *
+ * Cada cliente registra en un ShareChecksum lo que aplicó de cada share en el
+ * que participa: el remitente la cantidad enviada y el destino el block que
+ * ganó su jugador. Al cambiar de turno envía sus checksums; quien comparte la
+ * misma pareja (remitente, destino) los compara con los suyos y, si no
+ * coinciden, localiza el primer share distinto pidiendo prefijos solo a ese
+ * cliente (DivergenceSearch).
+ *
+ * Las búsquedas se identifican por (cliente que responde, pareja): con tres o
+ * más clientes las respuestas de uno no se mezclan con las de otro. Al
+ * terminar se informa y se elimina; la comparación se retoma desde el share
+ * divergente (Baseline) para detectar también las divergencias posteriores.
+ * Sin dependencias del juego; solo desde el hilo del juego.
+ */
+public final class DesyncDetector {
+
+    /**
+     * Recibe cada divergencia localizada
+     */
+    public interface Listener {
+        void onDivergence(int peer, int sender, int target, int firstDivergentEvent);
+    }
+
+    /**
+     * Búsqueda o punto de partida de la comparación con un cliente para una pareja
+     */
+    private static final class Key {
+        final int peer;
+        final long stream;
+
+        Key(int peer, long stream) {
+            this.peer = peer;
+            this.stream = stream;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return peer == other.peer && stream == other.stream;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * peer + Long.hashCode(stream);
+        }
+    }
+
+    /**
+     * Hashes de los dos clientes tras la última divergencia informada.
+     * Para n > count: H(n) = H(count) * PRIME^(n - count) + sufijo, así que
+     * los sufijos coinciden si la diferencia de hashes es la de aquí escalada.
+     */
+    private static final class Baseline {
+        final int count;
+        final long peerHash;
+        final long localHash;
+
+        Baseline(int count, long peerHash, long localHash) {
+            this.count = count;
+            this.peerHash = peerHash;
+            this.localHash = localHash;
+        }
+    }
+
+    private final int localId;
+    private final Consumer<byte[]> out;
+    private final Listener listener;
+
+    private final ShareChecksum checksum = new ShareChecksum();
+    private final Map<Key, DivergenceSearch> searches = new HashMap<>();
+    private final Map<Key, Baseline> baselines = new HashMap<>();
+
+    /**
+     * @param localId id de red de este cliente
+     * @param out     envía un frame a los demás clientes
+     */
+    public DesyncDetector(int localId, Consumer<byte[]> out, Listener listener) {
+        this.localId = localId;
+        this.out = out;
+        this.listener = listener;
+    }
+
+    /**
+     * Registra lo aplicado de un share en el que participa este cliente
+     */
+    public void record(int sender, int target, int sequence, int appliedAmount, int turn) {
+        checksum.record(ShareChecksum.streamKey(sender, target), sequence, appliedAmount, turn);
+    }
+
+    /**
+     * Envía el checksum de cada pareja registrada; al cambiar de turno
+     */
+    public void sendChecksums() {
+        List<ShareCodec.Checksum> entries = new ArrayList<>();
+        for (long stream : checksum.getStreams()) {
+            int count = checksum.getCount(stream);
+            entries.add(new ShareCodec.Checksum(ShareChecksum.senderOf(stream), ShareChecksum.targetOf(stream),
+                count, checksum.getPrefix(stream, count)));
+        }
+        if (!entries.isEmpty()) {
+            out.accept(ShareCodec.encodeChecksums(localId, entries));
+        }
+    }
+
+    public void onChecksums(ShareCodec.ChecksumReport report) {
+        if (report.reporter == localId) {
+            return;
+        }
+        for (ShareCodec.Checksum entry : report.checksums) {
+            onChecksum(report.reporter, entry);
+        }
+    }
+
+    private void onChecksum(int peer, ShareCodec.Checksum entry) {
+        long stream = ShareChecksum.streamKey(entry.sender, entry.target);
+        if (entry.eventCount > checksum.getCount(stream)) {
+            // Aún no se han aplicado aquí todos sus shares; se comparará en el próximo turno
+            return;
+        }
+        Key key = new Key(peer, stream);
+
+        DivergenceSearch search = searches.get(key);
+        if (search != null) {
+            if (entry.eventCount == search.nextProbe()) {
+                search.onProbeResult(entry.eventCount, matches(key, entry.eventCount, entry.hash), entry.hash);
+                continueSearch(key, search);
+            } else {
+                // Checksum periódico durante la búsqueda: repetir la petición por si se perdió
+                requestProbe(search);
+            }
+            return;
+        }
+
+        if (!matches(key, entry.eventCount, entry.hash)) {
+            Baseline baseline = baselines.get(key);
+            search = new DivergenceSearch(peer, stream, baseline != null ? baseline.count : 0,
+                entry.eventCount, entry.hash);
+            searches.put(key, search);
+            continueSearch(key, search);
+        }
+    }
+
+    /**
+     * Compara el hash del otro cliente tras count shares con el local,
+     * a partir de la última divergencia ya informada
+     */
+    private boolean matches(Key key, int count, long peerHash) {
+        long localHash = checksum.getPrefix(key.stream, count);
+        Baseline baseline = baselines.get(key);
+        if (baseline == null) {
+            return peerHash == localHash;
+        }
+        if (count <= baseline.count) {
+            // Ya informado
+            return true;
+        }
+        long scale = ShareChecksum.rollPower(count - baseline.count);
+        return peerHash - localHash == (baseline.peerHash - baseline.localHash) * scale;
+    }
+
+    private void continueSearch(Key key, DivergenceSearch search) {
+        if (!search.isDone()) {
+            requestProbe(search);
+            return;
+        }
+        searches.remove(key);
+        int high = search.getHigh();
+        baselines.put(key, new Baseline(high, search.getPeerHashAtHigh(), checksum.getPrefix(key.stream, high)));
+        listener.onDivergence(key.peer, ShareChecksum.senderOf(key.stream), ShareChecksum.targetOf(key.stream),
+            search.getFirstDivergentEvent());
+    }
+
+    private void requestProbe(DivergenceSearch search) {
+        long stream = search.getStream();
+        out.accept(ShareCodec.encodePrefixRequest(new ShareCodec.PrefixRequest(localId, search.getPeer(),
+            ShareChecksum.senderOf(stream), ShareChecksum.targetOf(stream), search.nextProbe())));
+    }
+
+    /**
+     * Responde solo a las peticiones dirigidas a este cliente
+     */
+    public void onPrefixRequest(ShareCodec.PrefixRequest request) {
+        long stream = ShareChecksum.streamKey(request.sender, request.target);
+        if (request.responder != localId || request.eventCount > checksum.getCount(stream)) {
+            return;
+        }
+        List<ShareCodec.Checksum> reply = new ArrayList<>(1);
+        reply.add(new ShareCodec.Checksum(request.sender, request.target, request.eventCount,
+            checksum.getPrefix(stream, request.eventCount)));
+        out.accept(ShareCodec.encodeChecksums(localId, reply));
+    }
+
+    public int getActiveSearches() {
+        return searches.size();
+    }
+
+    public ShareChecksum getChecksum() {
+        return checksum;
+    }
+
+    public void reset() {
+        checksum.reset();
+        searches.clear();
+        baselines.clear();
+    }
+}
@@ -0,0 +1,85 @@
+package defenseshare.net;
+
+/**
+ * Búsqueda binaria del primer share distinto entre este cliente y otro.
+ *
+ * Invariante: los prefijos de longitud low coinciden con los del otro
+ * cliente y los de longitud high no. Cada respuesta parte el intervalo por la
+ * mitad, así que bastan log2(n) consultas de unos bytes cada una. Se guarda
+ * el hash del otro cliente en high para retomar la comparación desde ahí una
+ * vez localizada la divergencia (DesyncDetector).
+ */
+public final class DivergenceSearch {
+
+    private final int peer;
+    private final long stream;
+    private int low;
+    private int high;
+    private long peerHashAtHigh;
+
+    /**
+     * Empieza con los prefijos de longitud low iguales y el de longitud high distinto
+     */
+    public DivergenceSearch(int peer, long stream, int low, int high, long peerHashAtHigh) {
+        this.peer = peer;
+        this.stream = stream;
+        this.low = low;
+        this.high = high;
+        this.peerHashAtHigh = peerHashAtHigh;
+    }
+
+    /**
+     * Cliente al que se piden los prefijos
+     */
+    public int getPeer() {
+        return peer;
+    }
+
+    /**
+     * Pareja (remitente, destino) comparada; ver ShareChecksum.streamKey
+     */
+    public long getStream() {
+        return stream;
+    }
+
+    public boolean isDone() {
+        return high - low <= 1;
+    }
+
+    /**
+     * Longitud del prefijo a pedir al otro cliente
+     */
+    public int nextProbe() {
+        return (low + high) >>> 1;
+    }
+
+    /**
+     * Resultado de comparar el prefijo de longitud probe con el hash del otro cliente
+     */
+    public void onProbeResult(int probe, boolean equal, long peerHash) {
+        if (probe <= low || probe >= high) {
+            return;
+        }
+        if (equal) {
+            low = probe;
+        } else {
+            high = probe;
+            peerHashAtHigh = peerHash;
+        }
+    }
+
+    /**
+     * Índice (desde 0) del primer evento distinto; válido cuando isDone()
+     */
+    public int getFirstDivergentEvent() {
+        return low;
+    }
+
+    public int getHigh() {
+        return high;
+    }
+
+    public long getPeerHashAtHigh() {
+        return peerHashAtHigh;
+    }
+}
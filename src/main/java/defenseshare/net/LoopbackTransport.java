@@ -0,0 +1,107 @@
+package defenseshare.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Transporte en memoria para probar el protocolo sin lobby de Steam.
+ * group() crea extremos conectados entre sí; lo que envía uno lo reciben
+ * todos los demás en el acto. Cuenta los bytes enviados para medir el ancho de banda.
+ * No se registra en ServiceLoader: solo para pruebas.
+ */
+public class LoopbackTransport implements ShareTransport {
+
+    private final int playerId;
+    private final List<LoopbackTransport> peers = new ArrayList<>();
+    private Consumer<byte[]> receiver;
+    private long bytesSent = 0;
+    private int framesSent = 0;
+    private boolean closed = false;
+
+    private LoopbackTransport(int playerId) {
+        this.playerId = playerId;
+    }
+
+    /**
+     * Dos extremos (jugadores 1 y 2) conectados entre sí
+     */
+    public static LoopbackTransport[] pair() {
+        return group(2);
+    }
+
+    /**
+     * count extremos conectados todos con todos (jugadores 1..count)
+     */
+    public static LoopbackTransport[] group(int count) {
+        LoopbackTransport[] endpoints = new LoopbackTransport[count];
+        for (int i = 0; i < count; i++) {
+            endpoints[i] = new LoopbackTransport(i + 1);
+        }
+        for (LoopbackTransport endpoint : endpoints) {
+            for (LoopbackTransport other : endpoints) {
+                if (other != endpoint) {
+                    endpoint.peers.add(other);
+                }
+            }
+        }
+        return endpoints;
+    }
+
+    /**
+     * Un extremo que se recibe a sí mismo
+     */
+    public static LoopbackTransport self() {
+        LoopbackTransport transport = new LoopbackTransport(1);
+        transport.peers.add(transport);
+        return transport;
+    }
+
+    @Override
+    public String getName() {
+        return "Loopback";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int getLocalPlayerId() {
+        return playerId;
+    }
+
+    @Override
+    public void send(byte[] frame) {
+        if (closed) {
+            return;
+        }
+        bytesSent += frame.length;
+        framesSent++;
+        for (int i = 0; i < peers.size(); i++) {
+            LoopbackTransport peer = peers.get(i);
+            if (!peer.closed && peer.receiver != null) {
+                peer.receiver.accept(frame.clone());
+            }
+        }
+    }
+
+    @Override
+    public void setReceiver(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public int getFramesSent() {
+        return framesSent;
+    }
+}
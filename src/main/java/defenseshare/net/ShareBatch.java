@@ -0,0 +1,34 @@
+package defenseshare.net;
+
+import java.util.List;
+
+/**
+ * Contenido de un frame de shares: quién lo envía, en qué turno y sus eventos
+ */
+public final class ShareBatch {
+
+    private final int sender;
+    private final int turn;
+    private final List<ShareEvent> events;
+
+    public ShareBatch(int sender, int turn, List<ShareEvent> events) {
+        this.sender = sender;
+        this.turn = turn;
+        this.events = events;
+    }
+
+    /**
+     * Identificador del cliente que envía (ShareTransport.getLocalPlayerId en su lado)
+     */
+    public int getSender() {
+        return sender;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public List<ShareEvent> getEvents() {
+        return events;
+    }
+}
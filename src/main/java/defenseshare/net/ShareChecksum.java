@@ -0,0 +1,139 @@
+package defenseshare.net;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checksum acumulativo de los shares aplicados, por pareja (remitente, destino).
+ *
+ * Cada pareja tiene su propia secuencia ordenada; el hash tras n eventos es
+ * H(n) = H(n-1) * PRIME + h(evento), con h = FNV-1a sobre (secuencia,
+ * block aplicado, turno). El remitente registra lo que envió y el destino el
+ * block que de verdad ganó su jugador, así que una diferencia entre los dos
+ * es un share que no llegó o que llegó con otro valor.
+ * Se guarda el historial de prefijos para poder comparar cualquier H(n) con
+ * el otro cliente y localizar por búsqueda binaria el primer evento distinto
+ * (DivergenceSearch).
+ */
+public final class ShareChecksum {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    static final long ROLL_PRIME = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Historial de prefijos de una pareja: prefix[n] es el hash tras n eventos
+     */
+    private static final class Stream {
+        long[] prefix = new long[16];
+        int count = 0;
+
+        Stream() {
+            prefix[0] = FNV_OFFSET;
+        }
+
+        void append(long eventHash) {
+            if (count + 1 == prefix.length) {
+                prefix = Arrays.copyOf(prefix, prefix.length * 2);
+            }
+            prefix[count + 1] = prefix[count] * ROLL_PRIME + eventHash;
+            count++;
+        }
+    }
+
+    private final Map<Long, Stream> streams = new HashMap<>();
+
+    /**
+     * Clave de la pareja (remitente, destino)
+     */
+    public static long streamKey(int sender, int target) {
+        return ((long) sender << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    public static int senderOf(long stream) {
+        return (int) (stream >>> 32);
+    }
+
+    public static int targetOf(long stream) {
+        return (int) stream;
+    }
+
+    /**
+     * Añade un share aplicado al final de la secuencia de su pareja
+     */
+    public void record(long stream, int sequence, int amount, int turn) {
+        Stream history = streams.get(stream);
+        if (history == null) {
+            history = new Stream();
+            streams.put(stream, history);
+        }
+        history.append(eventHash(sequence, amount, turn));
+    }
+
+    /**
+     * Número de shares aplicados de la pareja
+     */
+    public int getCount(long stream) {
+        Stream history = streams.get(stream);
+        return history != null ? history.count : 0;
+    }
+
+    /**
+     * Hash tras los primeros count shares de la pareja (0 <= count <= getCount)
+     */
+    public long getPrefix(long stream, int count) {
+        Stream history = streams.get(stream);
+        if (history == null) {
+            if (count != 0) {
+                throw new IllegalArgumentException("Sin eventos en " + Long.toHexString(stream));
+            }
+            return FNV_OFFSET;
+        }
+        if (count < 0 || count > history.count) {
+            throw new IllegalArgumentException("Prefijo fuera de rango: " + count);
+        }
+        return history.prefix[count];
+    }
+
+    /**
+     * Parejas con al menos un evento
+     */
+    public Iterable<Long> getStreams() {
+        return streams.keySet();
+    }
+
+    public void reset() {
+        streams.clear();
+    }
+
+    /**
+     * ROLL_PRIME^exponent en aritmética de 64 bits (la misma que usa H)
+     */
+    static long rollPower(int exponent) {
+        long result = 1;
+        long base = ROLL_PRIME;
+        for (int e = exponent; e > 0; e >>>= 1) {
+            if ((e & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+
+    private static long eventHash(int sequence, int amount, int turn) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, sequence);
+        hash = mix(hash, amount);
+        hash = mix(hash, turn);
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,369 @@
+package defenseshare.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formato binario de los frames de share.
+ *
+ * <pre>
+ * shares    := 1 remitente(4 bytes) turno(varint) cuenta(varint) evento*
+ * evento    := deltaSecuencia(varint) carta(4 bytes) destino(4 bytes) cantidad(varint)
+ * checksum  := 2 informante(4 bytes) cuenta(varint) entrada*
+ * entrada   := remitente(4 bytes) destino(4 bytes) eventos(varint) hash(8 bytes)
+ * petición  := 3 solicitante(4 bytes) respondedor(4 bytes) remitente(4 bytes) destino(4 bytes) eventos(varint)
+ * aplicado  := 4 destino(4 bytes) remitente(4 bytes) cuenta(varint) (secuencia(varint) block(varint))*
+ * </pre>
+ * La secuencia del primer evento es absoluta y la de los siguientes relativa
+ * al anterior. Remitente y destino son ids de jugador de red y la carta el
+ * hash de su cardID (ShareEvent): valen igual en todos los clientes.
+ * Un share típico (Defend a un aliado) ocupa 10 bytes más la cabecera.
+ * Los checksums se envían al cambiar de turno y como respuesta a una petición
+ * de prefijo durante la búsqueda de una desincronización (DesyncDetector);
+ * la petición va dirigida a un solo cliente, el único que responde.
+ * El destino confirma al remitente cada lote recibido con el block que ganó
+ * de verdad por cada share y el block con el que quedó (BlockPrediction).
+ */
+public final class ShareCodec {
+
+    // Tamaño mínimo de cada entrada: acota las cuentas leídas antes de reservar listas
+    private static final int MIN_EVENT_BYTES = 10;
+    private static final int MIN_CHECKSUM_BYTES = 17;
+    private static final int MIN_APPLIED_BYTES = 3;
+
+    public static final byte FRAME_SHARES = 1;
+    public static final byte FRAME_CHECKSUM = 2;
+    public static final byte FRAME_PREFIX_REQUEST = 3;
+    public static final byte FRAME_APPLIED = 4;
+
+    /**
+     * Hash de los primeros eventCount shares de una pareja (remitente, destino)
+     */
+    public static final class Checksum {
+        public final int sender;
+        public final int target;
+        public final int eventCount;
+        public final long hash;
+
+        public Checksum(int sender, int target, int eventCount, long hash) {
+            this.sender = sender;
+            this.target = target;
+            this.eventCount = eventCount;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Checksums enviados por un cliente
+     */
+    public static final class ChecksumReport {
+        public final int reporter;
+        public final List<Checksum> checksums;
+
+        public ChecksumReport(int reporter, List<Checksum> checksums) {
+            this.reporter = reporter;
+            this.checksums = checksums;
+        }
+    }
+
+    /**
+     * Petición de un prefijo de la pareja (sender, target) a un cliente concreto
+     */
+    public static final class PrefixRequest {
+        public final int requester;
+        public final int responder;
+        public final int sender;
+        public final int target;
+        public final int eventCount;
+
+        public PrefixRequest(int requester, int responder, int sender, int target, int eventCount) {
+            this.requester = requester;
+            this.responder = responder;
+            this.sender = sender;
+            this.target = target;
+            this.eventCount = eventCount;
+        }
+    }
+
+    /**
+     * Block que ganó el destino con el share de secuencia sequence y block total tras aplicarlo
+     */
+    public static final class Applied {
+        public final int sequence;
+        public final int amount;
+        public final int blockAfter;
+
+        public Applied(int sequence, int amount, int blockAfter) {
+            this.sequence = sequence;
+            this.amount = amount;
+            this.blockAfter = blockAfter;
+        }
+    }
+
+    /**
+     * Confirmación del destino al remitente de los shares que aplicó
+     */
+    public static final class AppliedReport {
+        public final int target;
+        public final int sender;
+        public final List<Applied> applied;
+
+        public AppliedReport(int target, int sender, List<Applied> applied) {
+            this.target = target;
+            this.sender = sender;
+            this.applied = applied;
+        }
+    }
+
+    private ShareCodec() {}
+
+    /**
+     * Codifica un lote de eventos en un frame
+     */
+    public static byte[] encodeShares(int sender, int turn, List<ShareEvent> events) {
+        Writer out = new Writer(8 + events.size() * 11);
+        out.writeByte(FRAME_SHARES);
+        out.writeInt(sender);
+        out.writeVarInt(turn);
+        out.writeVarInt(events.size());
+
+        int previous = 0;
+        for (int i = 0; i < events.size(); i++) {
+            ShareEvent event = events.get(i);
+            out.writeVarInt(i == 0 ? event.getSequence() : event.getSequence() - previous);
+            out.writeInt(event.getCardHash());
+            out.writeInt(event.getTarget());
+            out.writeVarInt(event.getAmount());
+            previous = event.getSequence();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Tipo del frame, o -1 si está vacío
+     */
+    public static int frameType(byte[] frame) {
+        return frame.length > 0 ? frame[0] : -1;
+    }
+
+    /**
+     * Decodifica un frame FRAME_SHARES
+     */
+    public static ShareBatch decodeShares(byte[] frame) {
+        Reader in = new Reader(frame);
+        if (in.readByte() != FRAME_SHARES) {
+            throw new IllegalArgumentException("No es un frame de shares");
+        }
+
+        int sender = in.readInt();
+        int turn = in.readVarInt();
+        int count = in.readCount(MIN_EVENT_BYTES);
+        List<ShareEvent> events = new ArrayList<>(count);
+        int sequence = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = in.readVarInt();
+            sequence = i == 0 ? delta : sequence + delta;
+            int cardHash = in.readInt();
+            int target = in.readInt();
+            int amount = in.readVarInt();
+            events.add(new ShareEvent(sequence, cardHash, target, amount));
+        }
+        return new ShareBatch(sender, turn, events);
+    }
+
+    public static byte[] encodeChecksums(int reporter, List<Checksum> checksums) {
+        Writer out = new Writer(6 + checksums.size() * 18);
+        out.writeByte(FRAME_CHECKSUM);
+        out.writeInt(reporter);
+        out.writeVarInt(checksums.size());
+        for (Checksum checksum : checksums) {
+            out.writeInt(checksum.sender);
+            out.writeInt(checksum.target);
+            out.writeVarInt(checksum.eventCount);
+            out.writeLong(checksum.hash);
+        }
+        return out.toByteArray();
+    }
+
+    public static ChecksumReport decodeChecksums(byte[] frame) {
+        Reader in = new Reader(frame);
+        if (in.readByte() != FRAME_CHECKSUM) {
+            throw new IllegalArgumentException("No es un frame de checksum");
+        }
+
+        int reporter = in.readInt();
+        int count = in.readCount(MIN_CHECKSUM_BYTES);
+        List<Checksum> checksums = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int sender = in.readInt();
+            int target = in.readInt();
+            int eventCount = in.readVarInt();
+            long hash = in.readLong();
+            checksums.add(new Checksum(sender, target, eventCount, hash));
+        }
+        return new ChecksumReport(reporter, checksums);
+    }
+
+    /**
+     * Pide al cliente responder su hash tras los primeros eventCount shares de una pareja
+     */
+    public static byte[] encodePrefixRequest(PrefixRequest request) {
+        Writer out = new Writer(22);
+        out.writeByte(FRAME_PREFIX_REQUEST);
+        out.writeInt(request.requester);
+        out.writeInt(request.responder);
+        out.writeInt(request.sender);
+        out.writeInt(request.target);
+        out.writeVarInt(request.eventCount);
+        return out.toByteArray();
+    }
+
+    public static PrefixRequest decodePrefixRequest(byte[] frame) {
+        Reader in = new Reader(frame);
+        if (in.readByte() != FRAME_PREFIX_REQUEST) {
+            throw new IllegalArgumentException("No es una petición de prefijo");
+        }
+        int requester = in.readInt();
+        int responder = in.readInt();
+        int sender = in.readInt();
+        int target = in.readInt();
+        return new PrefixRequest(requester, responder, sender, target, in.readVarInt());
+    }
+
+    public static byte[] encodeApplied(AppliedReport report) {
+        Writer out = new Writer(10 + report.applied.size() * 6);
+        out.writeByte(FRAME_APPLIED);
+        out.writeInt(report.target);
+        out.writeInt(report.sender);
+        out.writeVarInt(report.applied.size());
+        for (Applied entry : report.applied) {
+            out.writeVarInt(entry.sequence);
+            out.writeVarInt(entry.amount);
+            out.writeVarInt(entry.blockAfter);
+        }
+        return out.toByteArray();
+    }
+
+    public static AppliedReport decodeApplied(byte[] frame) {
+        Reader in = new Reader(frame);
+        if (in.readByte() != FRAME_APPLIED) {
+            throw new IllegalArgumentException("No es un frame de confirmación");
+        }
+        int target = in.readInt();
+        int sender = in.readInt();
+        int count = in.readCount(MIN_APPLIED_BYTES);
+        List<Applied> applied = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int sequence = in.readVarInt();
+            int amount = in.readVarInt();
+            applied.add(new Applied(sequence, amount, in.readVarInt()));
+        }
+        return new AppliedReport(target, sender, applied);
+    }
+
+    /**
+     * Buffer de escritura que crece según haga falta
+     */
+    static final class Writer {
+        private byte[] buffer;
+        private int size = 0;
+
+        Writer(int capacity) {
+            buffer = new byte[Math.max(capacity, 8)];
+        }
+
+        void writeByte(int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        /**
+         * Entero sin signo en bloques de 7 bits (LEB128)
+         */
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeInt(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                writeByte(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (value >>> shift));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * Lectura secuencial de un frame; lanza IllegalArgumentException si está truncado
+     */
+    static final class Reader {
+        private final byte[] buffer;
+        private int position = 0;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Frame truncado");
+            }
+            return buffer[position++];
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("VarInt demasiado largo");
+        }
+
+        /**
+         * Número de entradas que siguen; no puede superar las que caben en lo que
+         * queda del frame, así que un frame malformado nunca reserva memoria de más
+         */
+        int readCount(int minEntryBytes) {
+            int count = readVarInt();
+            if (count < 0 || count > (buffer.length - position) / minEntryBytes) {
+                throw new IllegalArgumentException("Cuenta de entradas inválida: " + count);
+            }
+            return count;
+        }
+
+        int readInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+    }
+}
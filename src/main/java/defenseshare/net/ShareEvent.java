@@ -0,0 +1,91 @@
+package defenseshare.net;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Un share de block: carta, jugador que lo recibe, cantidad y número de secuencia.
+ *
+ * Solo lleva identidades que valen igual en todos los clientes: la carta como
+ * hash de su cardID (hashCardId) y el destino como id de jugador de red
+ * (AllyProvider.getPlayerId / ShareTransport.getLocalPlayerId). Los ordinales
+ * de CardIdRegistry y los slots del roster son locales a cada cliente.
+ */
+public final class ShareEvent {
+
+    public static final int NO_CARD = 0;
+
+    private static final int FNV32_OFFSET = 0x811c9dc5;
+    private static final int FNV32_PRIME = 0x01000193;
+
+    private final int sequence;
+    private final int cardHash;
+    private final int target;
+    private final int amount;
+
+    public ShareEvent(int sequence, int cardHash, int target, int amount) {
+        this.sequence = sequence;
+        this.cardHash = cardHash;
+        this.target = target;
+        this.amount = amount;
+    }
+
+    /**
+     * Hash estable (FNV-1a de 32 bits sobre UTF-8) del cardID; NO_CARD para null
+     */
+    public static int hashCardId(String cardID) {
+        if (cardID == null) {
+            return NO_CARD;
+        }
+        int hash = FNV32_OFFSET;
+        for (byte b : cardID.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV32_PRIME;
+        }
+        return hash;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Hash del cardID (hashCardId), o NO_CARD
+     */
+    public int getCardHash() {
+        return cardHash;
+    }
+
+    /**
+     * Id de red del jugador que recibe el block
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ShareEvent)) return false;
+        ShareEvent other = (ShareEvent) o;
+        return sequence == other.sequence && cardHash == other.cardHash &&
+            target == other.target && amount == other.amount;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = sequence;
+        result = 31 * result + cardHash;
+        result = 31 * result + target;
+        result = 31 * result + amount;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ShareEvent{seq=" + sequence + ", card=" + Integer.toHexString(cardHash) +
+            ", target=" + target + ", amount=" + amount + "}";
+    }
+}
@@ -0,0 +1,269 @@
+package defenseshare.net;
+
+import com.megacrit.cardcrawl.actions.GameActionManager;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import defenseshare.ally.AllyProvider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Envío y recepción de eventos de share.
+ *
+ * Los shares del frame se acumulan y se envían juntos en un único frame
+ * binario desde receivePreUpdate. El transporte se descubre con ServiceLoader
+ * (ShareTransport); sin ninguno disponible no hace nada y los shares siguen
+ * llegando a los demás clientes por la sincronización de TiS.
+ *
+ * Con transporte, el share viaja solo por aquí: el remitente no toca el block
+ * del aliado y es el cliente destino quien lo aplica a su jugador al recibir
+ * el evento. Así cada lado sabe qué aplicó de verdad, y el DesyncDetector
+ * compara lo enviado con el block que ganó el destino. El destino confirma
+ * además al remitente cada share aplicado (FRAME_APPLIED), que es lo que
+ * concilia las predicciones de BlockPrediction.
+ * Solo desde el hilo del juego.
+ */
+public final class ShareNetwork {
+
+    private static final Logger logger = LogManager.getLogger(ShareNetwork.class.getName());
+
+    /**
+     * Recibe los eventos decodificados que llegan de otros clientes
+     */
+    public interface Listener {
+        default void onShareReceived(int sender, ShareEvent event) {}
+
+        /**
+         * El destino aplicó un share enviado por este cliente y quedó con blockAfter de block
+         */
+        default void onShareApplied(int target, int sequence, int appliedAmount, int blockAfter) {}
+    }
+
+    private static ShareTransport transport = null;
+    private static DesyncDetector detector = null;
+    private static final List<ShareEvent> outgoing = new ArrayList<>();
+    private static final List<Listener> listeners = new ArrayList<>();
+    private static int nextSequence = 0;
+    private static int lastChecksumTurn = -1;
+
+    // Dentro de applyToLocalPlayer: ese addBlock no es de ninguna carta local
+    private static boolean applyingRemote = false;
+
+    private ShareNetwork() {}
+
+    /**
+     * Busca un ShareTransport disponible; llamar una vez en PostInitialize
+     */
+    public static void initialize() {
+        ServiceLoader<ShareTransport> loader = ServiceLoader.load(ShareTransport.class, ShareTransport.class.getClassLoader());
+        for (ShareTransport candidate : loader) {
+            try {
+                if (candidate.isAvailable()) {
+                    setTransport(candidate);
+                    return;
+                }
+            } catch (RuntimeException | LinkageError e) {
+                logger.warn("Error inicializando transporte " + candidate.getClass().getName() + ": " + e.getMessage());
+            }
+        }
+        logger.info("Sin transporte de shares: el block compartido solo se sincroniza por TiS");
+    }
+
+    /**
+     * Configura el transporte (null para desactivar)
+     */
+    public static void setTransport(ShareTransport newTransport) {
+        if (transport != null) {
+            transport.close();
+        }
+        transport = newTransport;
+        detector = null;
+        outgoing.clear();
+        lastChecksumTurn = -1;
+        if (transport != null) {
+            detector = new DesyncDetector(transport.getLocalPlayerId(), transport::send, ShareNetwork::onDivergence);
+            transport.setReceiver(ShareNetwork::onFrame);
+            logger.info("Transporte de shares: " + transport.getName());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return transport != null;
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Id de red de este cliente en los frames, según el transporte
+     */
+    public static int getLocalSenderId() {
+        return transport != null ? transport.getLocalPlayerId() : 0;
+    }
+
+    /**
+     * Indica si se está aplicando un share recibido de otro cliente.
+     * GainBlockPatch no lo acumula aunque este jugador tenga su propio share abierto.
+     */
+    public static boolean isApplyingRemoteShare() {
+        return applyingRemote;
+    }
+
+    /**
+     * Detector del transporte actual, o null sin transporte
+     */
+    public static DesyncDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * Indica si un share a este jugador se entrega por el transporte
+     */
+    public static boolean canSendTo(int targetPlayerId) {
+        return transport != null && targetPlayerId != AllyProvider.NO_PLAYER;
+    }
+
+    /**
+     * Encola un share para el próximo flush; lo aplicará el cliente destino.
+     * Devuelve el evento creado, o null si no hay transporte o el destino no
+     * tiene id de red (AllyProvider.NO_PLAYER).
+     */
+    public static ShareEvent sendShare(String cardID, int targetPlayerId, int amount) {
+        if (!canSendTo(targetPlayerId)) {
+            return null;
+        }
+        ShareEvent event = new ShareEvent(nextSequence++, ShareEvent.hashCardId(cardID), targetPlayerId, amount);
+        outgoing.add(event);
+        return event;
+    }
+
+    /**
+     * Envía en un solo frame los shares pendientes y, al cambiar de turno,
+     * los checksums de cada pareja. Una vez por frame.
+     */
+    public static void flush() {
+        if (transport == null) {
+            return;
+        }
+
+        int sender = getLocalSenderId();
+        int turn = GameActionManager.turn;
+        if (!outgoing.isEmpty()) {
+            for (ShareEvent event : outgoing) {
+                detector.record(sender, event.getTarget(), event.getSequence(), event.getAmount(), turn);
+            }
+            byte[] frame = ShareCodec.encodeShares(sender, turn, outgoing);
+            outgoing.clear();
+            transport.send(frame);
+        }
+
+        if (turn != lastChecksumTurn) {
+            lastChecksumTurn = turn;
+            detector.sendChecksums();
+        }
+    }
+
+    /**
+     * Olvida checksums y búsquedas (fin de combate); la secuencia sigue
+     */
+    public static void reset() {
+        outgoing.clear();
+        if (detector != null) {
+            detector.reset();
+        }
+        lastChecksumTurn = -1;
+    }
+
+    private static void onFrame(byte[] frame) {
+        try {
+            switch (ShareCodec.frameType(frame)) {
+                case ShareCodec.FRAME_SHARES:
+                    onShares(ShareCodec.decodeShares(frame));
+                    break;
+                case ShareCodec.FRAME_CHECKSUM:
+                    detector.onChecksums(ShareCodec.decodeChecksums(frame));
+                    break;
+                case ShareCodec.FRAME_PREFIX_REQUEST:
+                    detector.onPrefixRequest(ShareCodec.decodePrefixRequest(frame));
+                    break;
+                case ShareCodec.FRAME_APPLIED:
+                    onApplied(ShareCodec.decodeApplied(frame));
+                    break;
+                default:
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Frame de shares inválido: " + e.getMessage());
+        }
+    }
+
+    private static void onShares(ShareBatch batch) {
+        int localId = transport.getLocalPlayerId();
+        // Los propios ya se registraron al enviarlos
+        if (batch.getSender() == localId) {
+            return;
+        }
+        List<ShareCodec.Applied> applied = new ArrayList<>();
+        for (ShareEvent event : batch.getEvents()) {
+            if (event.getTarget() == localId) {
+                int amount = applyToLocalPlayer(event.getAmount());
+                detector.record(batch.getSender(), localId, event.getSequence(), amount, batch.getTurn());
+                applied.add(new ShareCodec.Applied(event.getSequence(), amount, AbstractDungeon.player.currentBlock));
+            }
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onShareReceived(batch.getSender(), event);
+            }
+        }
+        if (!applied.isEmpty()) {
+            transport.send(ShareCodec.encodeApplied(new ShareCodec.AppliedReport(localId, batch.getSender(), applied)));
+        }
+    }
+
+    /**
+     * Confirmaciones de los shares de este cliente; las de otros remitentes se ignoran
+     */
+    private static void onApplied(ShareCodec.AppliedReport report) {
+        if (report.sender != transport.getLocalPlayerId()) {
+            return;
+        }
+        for (ShareCodec.Applied entry : report.applied) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onShareApplied(report.target, entry.sequence, entry.amount, entry.blockAfter);
+            }
+        }
+    }
+
+    /**
+     * Aplica un share recibido y devuelve el block que ganó de verdad el jugador
+     */
+    private static int applyToLocalPlayer(int amount) {
+        AbstractPlayer player = AbstractDungeon.player;
+        if (player == null || player.isDead || amount <= 0) {
+            return 0;
+        }
+        int before = player.currentBlock;
+        applyingRemote = true;
+        try {
+            player.addBlock(amount);
+        } finally {
+            applyingRemote = false;
+        }
+        return player.currentBlock - before;
+    }
+
+    private static void onDivergence(int peer, int sender, int target, int firstDivergentEvent) {
+        logger.warn("Desincronización del block compartido de " + sender + " a " + target +
+            " con el cliente " + peer + ": primer share distinto #" + firstDivergentEvent);
+    }
+}
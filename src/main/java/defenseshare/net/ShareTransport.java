@@ -0,0 +1,41 @@
+package defenseshare.net;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal por el que viajan los frames de share entre clientes.
+ *
+ * Las implementaciones se descubren con ServiceLoader
+ * (META-INF/services/defenseshare.net.ShareTransport), como los AllyProvider:
+ * un mod puente con TiS u otro lobby puede aportar la suya. Se usa la primera
+ * cuyo isAvailable() devuelva true; sin ninguna, el protocolo queda inactivo.
+ */
+public interface ShareTransport {
+
+    /**
+     * Nombre para el log
+     */
+    String getName();
+
+    /**
+     * Indica si el transporte puede usarse (lobby activo, mod puente instalado...)
+     */
+    boolean isAvailable();
+
+    /**
+     * Id de red del jugador local, en el mismo espacio que AllyProvider.getPlayerId
+     */
+    int getLocalPlayerId();
+
+    /**
+     * Envía un frame a los demás clientes
+     */
+    void send(byte[] frame);
+
+    /**
+     * Receptor de los frames que llegan de otros clientes (en el hilo del juego)
+     */
+    void setReceiver(Consumer<byte[]> receiver);
+
+    void close();
+}
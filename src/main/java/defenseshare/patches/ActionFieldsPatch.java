@@ -0,0 +1,19 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.actions.AbstractGameAction;
+
+/**
+ * Campos añadidos a AbstractGameAction para guardar estado del mod en cada instancia
+ */
+public class ActionFieldsPatch {
+
+    @SpirePatch(
+        clz = AbstractGameAction.class,
+        method = SpirePatch.CLASS
+    )
+    public static class ShareFields {
+        // Ámbito de GainBlockPatch al que pertenece la acción; null si no viene de una carta compartida
+        public static SpireField<Object> shareScope = new SpireField<>(() -> null);
+    }
+}
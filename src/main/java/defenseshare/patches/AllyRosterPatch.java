@@ -0,0 +1,31 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+
+import defenseshare.util.AllyManager;
+
+/**
+ * Hooks que invalidan el roster de aliados solo ante cambios reales:
+ * muerte y curación (revivir) de jugadores de TiS.
+ * Sin paramtypez se parchean todas las sobrecargas.
+ */
+public class AllyRosterPatch {
+
+    @SpirePatch(clz = AbstractMonster.class, method = "die")
+    public static class DiePatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractMonster __instance) {
+            AllyManager.onCreatureStateChanged(__instance);
+        }
+    }
+
+    @SpirePatch(clz = AbstractCreature.class, method = "heal")
+    public static class HealPatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractCreature __instance) {
+            AllyManager.onCreatureStateChanged(__instance);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.actions.AbstractGameAction;
+import com.megacrit.cardcrawl.actions.GameActionManager;
+import com.megacrit.cardcrawl.actions.utility.UseCardAction;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+
+import javassist.CannotCompileException;
+import javassist.expr.ExprEditor;
+import javassist.expr.MethodCall;
+import javassist.expr.NewExpr;
+
+import defenseshare.util.BlockActionAnalyzer;
+import defenseshare.util.InheritedClassSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Set;
+
+/**
+ * Motor de redirección para cualquier acción que otorgue block a su target.
+ *
+ * Las acciones encoladas desde la jugada compartida (use(), onPlayCard,
+ * onUseCard) o desde otra acción suya se marcan con el ámbito del share al
+ * encolarse. Si su clase está en la tabla de BlockActionAnalyzer (update() lee
+ * su target y llama a addBlock) y apuntan al jugador, en ese momento se cambia
+ * su target por el aliado. Solo el block de esa cadena se redirige y se
+ * acumula en GainBlockPatch para aplicarse de una vez. Sin share abierto los
+ * prefixes solo comprueban un campo estático.
+ */
+public class BlockActionRedirectPatch {
+
+    private static final Logger logger = LogManager.getLogger(BlockActionRedirectPatch.class.getName());
+
+    private static final String CARD_DESC = "Lcom/megacrit/cardcrawl/cards/AbstractCard;";
+    private static final String TEMP_HP_ACTION = "com.evacipated.cardcrawl.mod.stslib.actions.tempHp.AddTemporaryHPAction";
+
+    // Clases de acción que se redirigen cambiando su target; null hasta initialize()
+    private static InheritedClassSet redirectable = null;
+
+    /**
+     * Carga la tabla de acciones redirigibles; llamar una vez en PostInitialize
+     */
+    public static void initialize() {
+        Set<String> actions = BlockActionAnalyzer.getTable().getTargetActions();
+        redirectable = new InheritedClassSet(actions, "update");
+        logger.info("Acciones de block redirigibles: " + actions.size() +
+            (actions.contains(TEMP_HP_ACTION) ? " (con AddTemporaryHPAction)" : ""));
+    }
+
+    /**
+     * Indica si la acción da block a su target y basta con cambiarlo para redirigirla
+     */
+    public static boolean isRedirectable(AbstractGameAction action) {
+        InheritedClassSet set = redirectable;
+        return set != null && set.contains(action.getClass());
+    }
+
+    /**
+     * Delimita el use() de la carta dentro de AbstractPlayer.useCard, y la
+     * construcción de UseCardAction, que llama a los onUseCard de poderes y reliquias
+     */
+    @SpirePatch(
+        clz = AbstractPlayer.class,
+        method = "useCard"
+    )
+    public static class CardUseScopePatch {
+
+        @SpireInstrumentPatch
+        public static ExprEditor Instrument() {
+            return new ExprEditor() {
+                @Override
+                public void edit(MethodCall m) throws CannotCompileException {
+                    if (m.getClassName().equals(AbstractCard.class.getName()) && m.getMethodName().equals("use")) {
+                        String scope = GainBlockPatch.class.getName();
+                        m.replace("{ " + scope + ".beginCardUse(); $_ = $proceed($$); " + scope + ".endCardUse(); }");
+                    }
+                }
+
+                @Override
+                public void edit(NewExpr e) throws CannotCompileException {
+                    if (e.getClassName().equals(UseCardAction.class.getName())) {
+                        String scope = GainBlockPatch.class.getName();
+                        e.replace("{ " + scope + ".beginCardUse(); $_ = $proceed($$); " + scope + ".endCardUse(); }");
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Delimita los onPlayCard de poderes, reliquias y cartas que GameActionManager
+     * llama al jugar una carta, antes de useCard
+     */
+    @SpirePatch(
+        clz = GameActionManager.class,
+        method = "getNextAction"
+    )
+    public static class PlayHookScopePatch {
+
+        @SpireInstrumentPatch
+        public static ExprEditor Instrument() {
+            return new ExprEditor() {
+                @Override
+                public void edit(MethodCall m) throws CannotCompileException {
+                    if (m.getMethodName().equals("onPlayCard") && m.getSignature().startsWith("(" + CARD_DESC)) {
+                        String scope = GainBlockPatch.class.getName();
+                        m.replace("{ " + scope + ".beginPlayHook($1); $_ = $proceed($$); " + scope + ".endPlayHook(); }");
+                    }
+                }
+            };
+        }
+    }
+
+    @SpirePatch(
+        clz = GameActionManager.class,
+        method = "addToBottom"
+    )
+    public static class TagBottomPatch {
+
+        @SpirePrefixPatch
+        public static void Prefix(GameActionManager __instance, AbstractGameAction action) {
+            if (GainBlockPatch.isTracking()) {
+                GainBlockPatch.tagAction(action);
+            }
+        }
+    }
+
+    @SpirePatch(
+        clz = GameActionManager.class,
+        method = "addToTop"
+    )
+    public static class TagTopPatch {
+
+        @SpirePrefixPatch
+        public static void Prefix(GameActionManager __instance, AbstractGameAction action) {
+            if (GainBlockPatch.isTracking()) {
+                GainBlockPatch.tagAction(action);
+            }
+        }
+    }
+
+    /**
+     * Block otorgado por la cadena de la carta compartida: por sus acciones (ya
+     * redirigidas al aliado al encolarse) o por addBlock directo sobre el jugador en su use().
+     * Se acumula en lugar de aplicarse.
+     */
+    @SpirePatch(
+        clz = AbstractCreature.class,
+        method = "addBlock"
+    )
+    public static class DirectAddBlockPatch {
+
+        @SpirePrefixPatch
+        public static SpireReturn<Void> Prefix(AbstractCreature __instance, int blockAmount) {
+            if (GainBlockPatch.hasPendingShare() && GainBlockPatch.collectBlock(__instance, blockAmount)) {
+                return SpireReturn.Return();
+            }
+            return SpireReturn.Continue();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package defenseshare.patches;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+
+import defenseshare.util.BlockPrediction;
+
+/**
+ * Dibuja el block de los aliados con las predicciones pendientes ya sumadas.
+ *
+ * renderHealth dibuja currentBlock, así que el prefix lo sube temporalmente
+ * con el block predicho y el postfix lo restaura. La lógica del juego nunca ve
+ * el valor predicho, pero sí cualquier otro patch que lea currentBlock dentro
+ * de renderHealth. Si renderHealth lanza una excepción el postfix no corre: el
+ * valor se restaura en el siguiente prefix, antes de tocar otra criatura.
+ */
+public class BlockPredictionPatch {
+
+    // Criatura con el block cambiado durante su renderHealth
+    private static AbstractCreature rendered = null;
+    private static int savedBlock = 0;
+
+    @SpirePatch(
+        clz = AbstractCreature.class,
+        method = "renderHealth",
+        paramtypez = {SpriteBatch.class}
+    )
+    public static class RenderHealthPatch {
+
+        @SpirePrefixPatch
+        public static void Prefix(AbstractCreature __instance, SpriteBatch sb) {
+            restore();
+            if (!BlockPrediction.hasPending()) {
+                return;
+            }
+            int pending = BlockPrediction.getPendingBlock(__instance);
+            if (pending > 0) {
+                rendered = __instance;
+                savedBlock = __instance.currentBlock;
+                __instance.currentBlock += pending;
+            }
+        }
+
+        @SpirePostfixPatch
+        public static void Postfix(AbstractCreature __instance, SpriteBatch sb) {
+            restore();
+        }
+
+        private static void restore() {
+            if (rendered != null) {
+                rendered.currentBlock = savedBlock;
+                rendered = null;
+            }
+        }
+    }
+}
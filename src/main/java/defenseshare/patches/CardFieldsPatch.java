@@ -0,0 +1,31 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+
+import defenseshare.util.BlockProjection;
+import defenseshare.util.DefenseCardDetector;
+
+/**
+ * Campos añadidos a AbstractCard para guardar estado del mod en cada instancia
+ */
+public class CardFieldsPatch {
+
+    @SpirePatch(
+        clz = AbstractCard.class,
+        method = SpirePatch.CLASS
+    )
+    public static class DefenseFields {
+        // Veredicto de DefenseCardDetector; null hasta la primera consulta
+        public static SpireField<DefenseCardDetector.CachedVerdict> verdict = new SpireField<>(() -> null);
+
+        // Token de HandIndex; coincide con el actual si la carta está en la mano
+        public static SpireField<Object> handToken = new SpireField<>(() -> null);
+
+        // Target original mientras CardTargetingPatch tiene la carta en modo aliado
+        public static SpireField<AbstractCard.CardTarget> originalTarget = new SpireField<>(() -> null);
+
+        // Block proyectado para cada aliado del roster (BlockProjection)
+        public static SpireField<BlockProjection.Projection> projection = new SpireField<>(() -> null);
+    }
+}
@@ -1,86 +1,97 @@
 package defenseshare.patches;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input;
 import com.evacipated.cardcrawl.modthespire.lib.*;
 import com.megacrit.cardcrawl.cards.AbstractCard;
 import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.core.AbstractCreature;
 import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
 import com.megacrit.cardcrawl.monsters.AbstractMonster;
 
 import defenseshare.DefenseShareMod;
+import defenseshare.config.ModConfig;
 import defenseshare.util.AllyManager;
 import defenseshare.util.DefenseCardDetector;
-
-import java.util.HashMap;
-import java.util.Map;
+import defenseshare.util.FrameContext;
+import defenseshare.util.HandIndex;
+import defenseshare.util.RetargetBatch;
+import defenseshare.util.SlotTargeting;
+import defenseshare.util.ThreatIndex;
 
 /**
  * Patch para permitir que cartas de defensa se apunten a aliados.
- * Mantener SHIFT activa el modo aliado - las cartas cambian a ENEMY target.
+ * Mantener SHIFT activa el modo aliado - las cartas de la mano cambian a ENEMY target.
  */
 public class CardTargetingPatch {
 
-    private static final Map<AbstractCard, AbstractCard.CardTarget> originalTargets = new HashMap<>();
+    // Cartas con el target cambiado en el último lote; el target original se guarda
+    // en la propia carta (CardFieldsPatch)
+    private static final RetargetBatch<AbstractCard, AbstractCard.CardTarget> retargetedCards = new RetargetBatch<>(
+        card -> card.target,
+        (card, target) -> card.target = target,
+        CardFieldsPatch.DefenseFields.originalTarget::get,
+        CardFieldsPatch.DefenseFields.originalTarget::set);
+
+    // Último estado aplicado por updateHandTargets
+    private static boolean lastShareState = false;
+    private static int lastHandVersion = -1;
 
     /**
-     * Verifica si el modo aliado está activo (Shift presionado)
+     * Verifica si el modo aliado está activo (Shift presionado en este frame)
      */
     public static boolean isAllyModeActive() {
-        return Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT) ||
-               Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT);
+        return FrameContext.current().isAllyModeActive();
     }
 
-    @SpirePatch(
-        clz = AbstractCard.class,
-        method = "update"
-    )
-    public static class UpdateTargetPatch {
+    /**
+     * Cambia el target de las cartas de defensa de la mano en bloque, solo cuando
+     * cambia el modo aliado, la disponibilidad de aliados o la mano.
+     * Se llama una vez por frame desde receivePreUpdate, después de FrameContext.capture().
+     */
+    public static void updateHandTargets(FrameContext frame) {
+        if (!frame.isTisLoaded()) {
+            return;
+        }
 
-        @SpirePostfixPatch
-        public static void Postfix(AbstractCard __instance) {
-            if (!DefenseShareMod.isTogetherInSpireLoaded()) {
-                return;
-            }
+        boolean share = frame.isAlliesAvailable() && frame.isAllyModeActive();
+        int handVersion = HandIndex.getVersion();
+        if (share == lastShareState && handVersion == lastHandVersion) {
+            return;
+        }
+        lastShareState = share;
+        lastHandVersion = handVersion;
 
-            if (AbstractDungeon.player == null || AbstractDungeon.player.hand == null) {
-                return;
-            }
+        // Restaurar todas las cartas cambiadas (incluidas las que ya no están en la mano)
+        restoreAllTargets();
 
-            boolean inHand = AbstractDungeon.player.hand.contains(__instance);
-            if (!inHand) {
-                if (originalTargets.containsKey(__instance)) {
-                    __instance.target = originalTargets.remove(__instance);
+        if (share) {
+            for (AbstractCard card : AbstractDungeon.player.hand.group) {
+                if (card.target == AbstractCard.CardTarget.SELF && DefenseCardDetector.isDefenseCard(card)) {
+                    retargetedCards.retarget(card, AbstractCard.CardTarget.ENEMY);
                 }
-                return;
             }
+        }
+    }
 
-            if (!DefenseCardDetector.isDefenseCard(__instance)) {
-                return;
-            }
+    /**
+     * Restaura todas las cartas cambiadas y olvida sus referencias.
+     * También se llama al terminar el combate y al empezar partida.
+     */
+    public static void restoreAllTargets() {
+        retargetedCards.restoreAll();
+    }
 
-            if (!AllyManager.hasAlliesAvailable()) {
-                if (originalTargets.containsKey(__instance)) {
-                    __instance.target = originalTargets.remove(__instance);
-                }
-                return;
-            }
+    /**
+     * Fuerza a que updateHandTargets vuelva a aplicar el lote en el próximo frame
+     */
+    public static void reset() {
+        restoreAllTargets();
+        SlotTargeting.reset();
+        lastShareState = false;
+        lastHandVersion = -1;
+    }
 
-            // Solo cambiar target si Shift está presionado
-            if (isAllyModeActive()) {
-                if (!originalTargets.containsKey(__instance)) {
-                    originalTargets.put(__instance, __instance.target);
-                }
-                if (__instance.target == AbstractCard.CardTarget.SELF) {
-                    __instance.target = AbstractCard.CardTarget.ENEMY;
-                }
-            } else {
-                // Restaurar target original si Shift no está presionado
-                if (originalTargets.containsKey(__instance)) {
-                    __instance.target = originalTargets.remove(__instance);
-                }
-            }
-        }
+    private static void restoreTarget(AbstractCard card) {
+        retargetedCards.restore(card);
     }
 
     @SpirePatch(
@@ -96,9 +107,19 @@ public class CardTargetingPatch {
                 return SpireReturn.Continue();
             }
 
-            // Solo redirigir si está en modo aliado y apunta a un Network*
-            if (isAllyModeActive() && monster != null && isNetworkAlly(monster)) {
-                GainBlockPatch.setTargetAlly(monster);
+            // Solo redirigir si está en modo aliado y apunta a un aliado
+            // Jugada con F1..F8: cuenta como modo aliado aunque no se mantenga SHIFT
+            boolean slotShare = SlotTargeting.consumePending(c);
+            if (slotShare || isAllyModeActive()) {
+                if (AllyManager.isAlly(monster)) {
+                    GainBlockPatch.openShare(monster, c);
+                }
+            } else if (ModConfig.AUTO_SELECT_LOWEST_HP) {
+                // Sin apuntar: al aliado más en peligro, solo si lo está más que el jugador
+                AbstractCreature ally = ThreatIndex.getMostEndangeredAlly();
+                if (ThreatIndex.isMoreEndangeredThanPlayer(ally)) {
+                    GainBlockPatch.openShare(ally, c);
+                }
             }
 
             return SpireReturn.Continue();
@@ -106,14 +127,9 @@ public class CardTargetingPatch {
 
         @SpirePostfixPatch
         public static void Postfix(AbstractPlayer __instance, AbstractCard c, AbstractMonster monster, int energyOnUse) {
-            originalTargets.remove(c);
-            GainBlockPatch.clearTargetAlly();
+            restoreTarget(c);
+            // El share sigue abierto hasta que terminen las acciones que encoló la carta
+            GainBlockPatch.scheduleFlush();
         }
     }
-
-    private static boolean isNetworkAlly(AbstractMonster monster) {
-        if (monster == null) return false;
-        String className = monster.getClass().getName();
-        return className.startsWith("spireTogether.monsters.playerChars.Network");
-    }
 }
@@ -1,119 +1,270 @@
 package defenseshare.patches;
 
-import com.evacipated.cardcrawl.modthespire.lib.*;
-import com.megacrit.cardcrawl.actions.common.GainBlockAction;
+import com.megacrit.cardcrawl.actions.AbstractGameAction;
+import com.megacrit.cardcrawl.cards.AbstractCard;
 import com.megacrit.cardcrawl.core.AbstractCreature;
 import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
 
-import defenseshare.DefenseShareMod;
+import defenseshare.actions.ShareFlushAction;
+import defenseshare.net.ShareEvent;
+import defenseshare.net.ShareNetwork;
+import defenseshare.telemetry.ShareTelemetry;
+import defenseshare.telemetry.TelemetryRecord;
+import defenseshare.util.AllyManager;
+import defenseshare.util.BlockGrant;
+import defenseshare.util.BlockPrediction;
+import defenseshare.util.BlockProjection;
+import defenseshare.util.CardIdRegistry;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Patch para interceptar y modificar GainBlockAction
- * Permite redirigir el block a aliados cuando sea necesario
+ * Estado de redirección de block a aliados.
+ *
+ * Un share abre un ámbito en UseCardPatch.Prefix que dura hasta el final de
+ * la cadena de acciones de la carta (ShareFlushAction). Solo cuenta lo que
+ * desencadena la propia jugada: su use(), los onPlayCard y onUseCard de
+ * reliquias y poderes (After Image, por ejemplo) y las acciones que encolan,
+ * directa o indirectamente, marcadas con el ámbito (BlockActionRedirectPatch).
+ * Ahí las acciones de block pasan a tener el aliado como target y el block para
+ * el jugador o el aliado se acumula en lugar de aplicarse; el de acciones
+ * anteriores se aplica con normalidad aunque se ejecute con el share abierto.
+ * Los onPlayCard se ejecutan antes de abrir el share: sus acciones se marcan
+ * al abrirlo, pero un addBlock directo en ellos ya se aplicó al jugador.
+ * Al cerrar se aplica como una única concesión: un solo addBlock y una sola
+ * sincronización de TiS por carta, con el block de la carta recalculado con
+ * los poderes del aliado (BlockGrant).
+ * Con transporte (ShareNetwork) no se toca el aliado: se envía un ShareEvent
+ * y lo aplica el cliente destino. En ambos casos se muestra como predicción
+ * hasta que el block sincronizado del aliado lo refleja (BlockPrediction) y
+ * queda en la telemetría (ShareTelemetry).
  */
 public class GainBlockPatch {
 
     private static final Logger logger = LogManager.getLogger(GainBlockPatch.class.getName());
 
-    // Variable para rastrear si el próximo GainBlockAction debe ir a un aliado
-    private static AbstractCreature targetAllyForNextBlock = null;
+    // Aliado del share abierto, o null
+    private static AbstractCreature shareAlly = null;
 
-    // Field pre-cargado para evitar reflection en cada uso
-    private static Field targetField = null;
-    private static boolean fieldInitialized = false;
+    // Carta que abrió el share (ordinal de CardIdRegistry) y su block con los poderes del jugador
+    private static int shareCardOrdinal = CardIdRegistry.UNKNOWN;
+    private static AbstractCard shareCard = null;
+    private static int shareCardBlock = 0;
+
+    // Block acumulado en el ámbito actual
+    private static int pendingBlock = 0;
+
+    // Identifica las acciones de la carta del share abierto (ActionFieldsPatch)
+    private static Object shareScope = null;
+
+    // Dentro del use() de la carta que abrió el share o de los onUseCard de su jugada
+    private static boolean inCardUse = false;
+
+    // Acciones encoladas por los onPlayCard de la jugada en curso, antes de abrir el share
+    private static final List<AbstractGameAction> playHookActions = new ArrayList<>();
+    private static AbstractCard playHookCard = null;
+    private static boolean inPlayHook = false;
 
     /**
-     * Inicializa el field una sola vez
+     * Abre un share hacia el aliado. Si quedaba otro abierto, se aplica antes.
      */
-    private static void initializeField() {
-        if (fieldInitialized) return;
-        fieldInitialized = true;
-
-        try {
-            targetField = GainBlockAction.class.getDeclaredField("target");
-            targetField.setAccessible(true);
-        } catch (NoSuchFieldException e) {
-            logger.error("Campo 'target' no encontrado en GainBlockAction");
+    public static void openShare(AbstractCreature ally, AbstractCard card) {
+        if (shareAlly != null) {
+            flushShare();
+        }
+        shareAlly = ally;
+        shareCardOrdinal = CardIdRegistry.lookup(card.cardID);
+        shareCard = card;
+        // Sin baseBlock la carta no tiene cifra proyectada: lo acumulado se concede tal cual
+        shareCardBlock = card.baseBlock > 0 ? card.block : 0;
+        pendingBlock = 0;
+        shareScope = new Object();
+
+        // Lo que encolaron los onPlayCard de esta misma jugada también es del share
+        if (card == playHookCard) {
+            for (int i = 0; i < playHookActions.size(); i++) {
+                claimAction(playHookActions.get(i));
+            }
         }
+        clearPlayHooks();
     }
 
     /**
-     * Establece el aliado que debe recibir el próximo block
+     * Entrada y salida de los onPlayCard de una jugada, antes de useCard (PlayHookScopePatch)
      */
-    public static void setTargetAlly(AbstractCreature ally) {
-        targetAllyForNextBlock = ally;
+    public static void beginPlayHook(AbstractCard card) {
+        if (card != playHookCard) {
+            playHookActions.clear();
+            playHookCard = card;
+        }
+        inPlayHook = true;
+    }
+
+    public static void endPlayHook() {
+        inPlayHook = false;
+    }
+
+    private static void clearPlayHooks() {
+        playHookActions.clear();
+        playHookCard = null;
+        inPlayHook = false;
     }
 
     /**
-     * Limpia el aliado objetivo
+     * Entrada y salida del use() de la carta y de UseCardAction, que llama a
+     * los onUseCard (CardUseScopePatch)
      */
-    public static void clearTargetAlly() {
-        targetAllyForNextBlock = null;
+    public static void beginCardUse() {
+        inCardUse = shareAlly != null;
+    }
+
+    public static void endCardUse() {
+        inCardUse = false;
     }
 
     /**
-     * Redirige el target de una GainBlockAction al aliado
+     * Marca la acción como parte del share si se encola desde la cadena de la carta
      */
-    private static void redirectToAlly(GainBlockAction action, AbstractCreature originalTarget) {
-        if (targetAllyForNextBlock == null || !DefenseShareMod.isTogetherInSpireLoaded()) {
-            return;
+    public static void tagAction(AbstractGameAction action) {
+        if (action != null && inPlayHook) {
+            // Aún no hay share: se marca al abrirlo si es para esta carta
+            playHookActions.add(action);
         }
-
-        // Solo redirigir si el target es el jugador actual
-        if (originalTarget != AbstractDungeon.player) {
-            return;
+        if (action != null && isInShareChain()) {
+            claimAction(action);
         }
+    }
 
-        initializeField();
+    /**
+     * Marca la acción con el ámbito del share y, si da block al jugador, le pone el aliado como target
+     */
+    private static void claimAction(AbstractGameAction action) {
+        ActionFieldsPatch.ShareFields.shareScope.set(action, shareScope);
+        if (action.target == AbstractDungeon.player && BlockActionRedirectPatch.isRedirectable(action)) {
+            action.target = shareAlly;
+            logger.debug(action.getClass().getSimpleName() + " redirigida a " + shareAlly.name);
+        }
+    }
 
-        if (targetField == null) {
-            return;
+    /**
+     * Dentro del use() de la carta o de una acción encolada por ella
+     */
+    private static boolean isInShareChain() {
+        Object scope = shareScope;
+        if (scope == null) {
+            return false;
         }
+        if (inCardUse) {
+            return true;
+        }
+        AbstractGameAction current = AbstractDungeon.actionManager != null ?
+            AbstractDungeon.actionManager.currentAction : null;
+        return current != null && ActionFieldsPatch.ShareFields.shareScope.get(current) == scope;
+    }
 
-        try {
-            targetField.set(action, targetAllyForNextBlock);
-            logger.info("Block redirigido a " + targetAllyForNextBlock.name);
-        } catch (Exception e) {
-            logger.error("Error redirigiendo block: " + e.getMessage());
+    /**
+     * Cierra el ámbito al final de la cadena de acciones de la carta
+     */
+    public static void scheduleFlush() {
+        // La jugada ya no encolará más: lo de sus onPlayCard no se marcará
+        clearPlayHooks();
+        if (shareAlly != null) {
+            AbstractDungeon.actionManager.addToBottom(new ShareFlushAction());
         }
+    }
+
+    /**
+     * Indica si hay que marcar las acciones encoladas: share abierto o dentro de un onPlayCard
+     */
+    public static boolean isTracking() {
+        return shareAlly != null || inPlayHook;
+    }
 
-        clearTargetAlly();
+    /**
+     * Indica si hay un share abierto
+     */
+    public static boolean hasPendingShare() {
+        return shareAlly != null;
     }
 
     /**
-     * Patch del constructor de GainBlockAction (2 params)
+     * Acumula el block que la cadena de la carta da al jugador o al aliado.
+     * Devuelve true si se acumuló (y el addBlock original no debe aplicarse).
+     * Los shares recibidos de otros clientes nunca se acumulan.
      */
-    @SpirePatch(
-        clz = GainBlockAction.class,
-        method = SpirePatch.CONSTRUCTOR,
-        paramtypez = {AbstractCreature.class, int.class}
-    )
-    public static class GainBlockConstructorPatch {
-
-        @SpirePostfixPatch
-        public static void Postfix(GainBlockAction __instance, AbstractCreature target, int amount) {
-            redirectToAlly(__instance, target);
+    public static boolean collectBlock(AbstractCreature creature, int amount) {
+        AbstractCreature ally = shareAlly;
+        if (ally == null || (creature != ally && creature != AbstractDungeon.player) || !isInShareChain()
+                || ShareNetwork.isApplyingRemoteShare()) {
+            return false;
         }
+        pendingBlock += amount;
+        return true;
     }
 
     /**
-     * Patch del constructor de GainBlockAction (3 params)
+     * Cierra el share y aplica el block acumulado al aliado de una vez
      */
-    @SpirePatch(
-        clz = GainBlockAction.class,
-        method = SpirePatch.CONSTRUCTOR,
-        paramtypez = {AbstractCreature.class, AbstractCreature.class, int.class}
-    )
-    public static class GainBlockConstructor3Patch {
-
-        @SpirePostfixPatch
-        public static void Postfix(GainBlockAction __instance, AbstractCreature target, AbstractCreature source, int amount) {
-            redirectToAlly(__instance, target);
+    public static void flushShare() {
+        AbstractCreature ally = shareAlly;
+        int collected = pendingBlock;
+        int cardOrdinal = shareCardOrdinal;
+        AbstractCard card = shareCard;
+        int cardBlock = shareCardBlock;
+        shareAlly = null;
+        shareCardOrdinal = CardIdRegistry.UNKNOWN;
+        shareCard = null;
+        shareCardBlock = 0;
+        pendingBlock = 0;
+        shareScope = null;
+
+        if (ally == null) {
+            return;
+        }
+        // Lo que mostró el tip: el block de la carta con los poderes del aliado
+        int amount = BlockGrant.toAlly(collected, cardBlock, BlockProjection.getProjectedBlock(card, ally));
+        int slot = AllyManager.getSnapshot().indexOf(ally);
+        if (amount <= 0) {
+            ShareTelemetry.recordRedirectFailure(ally, cardOrdinal, slot, TelemetryRecord.FAILURE_NO_BLOCK, amount);
+            return;
         }
+        if (ally.isDead || ally.currentHealth <= 0) {
+            ShareTelemetry.recordRedirectFailure(ally, cardOrdinal, slot, TelemetryRecord.FAILURE_ALLY_DEAD, amount);
+            return;
+        }
+
+        int playerId = AllyManager.getPlayerId(ally);
+        if (ShareNetwork.canSendTo(playerId)) {
+            // Lo aplica el cliente destino; aquí solo se muestra como predicción hasta que lo confirme
+            ShareEvent event = ShareNetwork.sendShare(CardIdRegistry.getId(cardOrdinal), playerId, amount);
+            BlockPrediction.predict(ally, playerId, event.getSequence(), amount);
+        } else {
+            // Con el ámbito ya cerrado este addBlock se aplica normalmente
+            int before = ally.currentBlock;
+            ally.addBlock(amount);
+            if (ally.currentBlock == before) {
+                // TiS lo aplica en su cliente; se muestra hasta la siguiente sincronización del aliado
+                BlockPrediction.predictSynced(ally, amount);
+            }
+        }
+        ShareTelemetry.recordShare(ally, cardOrdinal, slot, amount);
+    }
+
+    /**
+     * Descarta cualquier share abierto (fin de combate, nueva partida)
+     */
+    public static void reset() {
+        shareAlly = null;
+        shareCardOrdinal = CardIdRegistry.UNKNOWN;
+        shareCard = null;
+        shareCardBlock = 0;
+        pendingBlock = 0;
+        shareScope = null;
+        inCardUse = false;
+        clearPlayHooks();
     }
 }
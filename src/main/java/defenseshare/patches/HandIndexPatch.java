@@ -0,0 +1,113 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+
+import defenseshare.util.HandIndex;
+
+/**
+ * Hooks que mantienen actualizado HandIndex.
+ * Sin paramtypez se parchean todas las sobrecargas de cada método.
+ */
+public class HandIndexPatch {
+
+    @SpirePatch(clz = CardGroup.class, method = "addToHand")
+    public static class AddToHandPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "addToTop")
+    public static class AddToTopPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "addToBottom")
+    public static class AddToBottomPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "addToRandomSpot")
+    public static class AddToRandomSpotPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "removeCard")
+    public static class RemoveCardPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "clear")
+    public static class ClearPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "moveToDiscardPile")
+    public static class MoveToDiscardPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "moveToExhaustPile")
+    public static class MoveToExhaustPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "moveToDeck")
+    public static class MoveToDeckPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    @SpirePatch(clz = CardGroup.class, method = "moveToBottomOfDeck")
+    public static class MoveToBottomOfDeckPatch {
+        @SpirePostfixPatch
+        public static void Postfix(CardGroup __instance) {
+            HandIndex.markDirty();
+        }
+    }
+
+    /**
+     * Mantiene el contador de cartas de defensa brillando
+     */
+    @SpirePatch(clz = AbstractCard.class, method = "beginGlowing")
+    public static class BeginGlowingPatch {
+        @SpirePrefixPatch
+        public static void Prefix(AbstractCard __instance) {
+            HandIndex.onGlowChanging(__instance, true);
+        }
+    }
+
+    @SpirePatch(clz = AbstractCard.class, method = "stopGlowing")
+    public static class StopGlowingPatch {
+        @SpirePrefixPatch
+        public static void Prefix(AbstractCard __instance) {
+            HandIndex.onGlowChanging(__instance, false);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import defenseshare.util.BlockProjection;
+
+/**
+ * Hooks de cambios de poderes para invalidar las proyecciones de block memorizadas
+ */
+public class PowerChangePatch {
+
+    // El juego llama a onModifyPower cada vez que se aplica, reduce o quita un poder
+    @SpirePatch(clz = AbstractDungeon.class, method = "onModifyPower")
+    public static class OnModifyPowerPatch {
+        @SpirePostfixPatch
+        public static void Postfix() {
+            BlockProjection.onPowersChanged();
+        }
+    }
+}
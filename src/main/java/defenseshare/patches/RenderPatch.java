@@ -2,17 +2,21 @@ package defenseshare.patches;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
 import com.evacipated.cardcrawl.modthespire.lib.*;
 import com.megacrit.cardcrawl.cards.AbstractCard;
-import com.megacrit.cardcrawl.characters.AbstractPlayer;
 import com.megacrit.cardcrawl.core.Settings;
-import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
-import com.megacrit.cardcrawl.helpers.FontHelper;
+import com.megacrit.cardcrawl.helpers.TipHelper;
 import com.megacrit.cardcrawl.rooms.AbstractRoom;
 
-import defenseshare.DefenseShareMod;
+import defenseshare.config.ModConfig;
+import defenseshare.util.AllyIndicatorCache;
 import defenseshare.util.AllyManager;
+import defenseshare.util.BlockProjection;
 import defenseshare.util.DefenseCardDetector;
+import defenseshare.util.FrameContext;
+import defenseshare.util.HandIndex;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,51 +33,49 @@ public class RenderPatch {
     private static final Color SHAREABLE_COLOR = new Color(0.3f, 0.7f, 1.0f, 0.8f);
     private static final Color SELECTING_COLOR = new Color(0.2f, 1.0f, 0.4f, 0.9f);
 
+    // Separación del indicador sobre el borde superior de la carta, a escala 1
+    private static final float INDICATOR_OFFSET_Y = 30.0f;
+
     /**
-     * Patch para renderizar indicadores en cartas de defensa compartibles
+     * Indicador de cada carta de defensa compartible de la mano, dibujado justo
+     * después de la propia carta: respeta el orden de la mano, así que las cartas
+     * que se dibujan después (la que está bajo el cursor) lo tapan. Sigue la
+     * escala y el giro de la carta; todas comparten la textura horneada.
      */
     @SpirePatch(
         clz = AbstractCard.class,
         method = "render",
         paramtypez = {SpriteBatch.class}
     )
-    public static class CardRenderPatch {
+    public static class HandIndicatorPatch {
 
         @SpirePostfixPatch
         public static void Postfix(AbstractCard __instance, SpriteBatch sb) {
-            // Solo renderizar si TiS está activo y estamos en combate
-            // Verificar primero si estamos en un dungeon (currMapNode existe)
-            if (!DefenseShareMod.isTogetherInSpireLoaded() ||
-                AbstractDungeon.currMapNode == null ||
-                AbstractDungeon.getCurrRoom() == null ||
-                AbstractDungeon.getCurrRoom().phase != AbstractRoom.RoomPhase.COMBAT) {
+            // Solo renderizar si TiS está activo, estamos en combate con aliados y Shift está presionado
+            FrameContext frame = FrameContext.current();
+            if (!ModConfig.SHOW_SHARE_INDICATOR || !frame.isSharingAvailable() || !frame.isAllyModeActive() ||
+                !HandIndex.contains(__instance) || !DefenseCardDetector.isDefenseCard(__instance)) {
                 return;
             }
 
-            // Solo mostrar si es carta de defensa, hay aliados, y Shift está presionado
-            if (DefenseCardDetector.isDefenseCard(__instance) &&
-                AllyManager.hasAlliesAvailable() &&
-                CardTargetingPatch.isAllyModeActive()) {
-
-                // Mostrar en cartas de la mano
-                if (AbstractDungeon.player.hand.contains(__instance)) {
-                    renderAllyIndicator(sb, __instance);
-                }
+            TextureRegion indicator = AllyIndicatorCache.getRegion();
+            if (indicator == null) {
+                return;
             }
-        }
 
-        private static void renderAllyIndicator(SpriteBatch sb, AbstractCard card) {
-            float x = card.current_x;
-            float y = card.current_y + (card.hb.height / 2) + (30 * Settings.scale);
-
-            FontHelper.renderFontCentered(
-                sb,
-                FontHelper.cardTitleFont,
-                "ALLY",
-                x,
-                y,
-                SHAREABLE_COLOR
-            );
+            float width = indicator.getRegionWidth();
+            float height = indicator.getRegionHeight();
+            float scale = __instance.drawScale;
+
+            // Encima del borde superior de la carta, girado con ella
+            float distance = (AbstractCard.IMG_HEIGHT / 2.0f + INDICATOR_OFFSET_Y * Settings.scale) * scale;
+            float x = __instance.current_x - MathUtils.sinDeg(__instance.angle) * distance;
+            float y = __instance.current_y + MathUtils.cosDeg(__instance.angle) * distance;
+
+            sb.setColor(SHAREABLE_COLOR);
+            sb.draw(indicator, x - width / 2, y - height / 2, width / 2, height / 2, width, height,
+                scale, scale, __instance.angle);
+            sb.setColor(Color.WHITE);
         }
     }
 
@@ -89,25 +91,23 @@ public class RenderPatch {
 
         @SpirePostfixPatch
         public static void Postfix(AbstractRoom __instance, SpriteBatch sb) {
-            // Solo renderizar si Together in Spire está activo
-            if (!DefenseShareMod.isTogetherInSpireLoaded() || !AllyManager.hasAlliesAvailable()) {
+            // Solo renderizar si Together in Spire está activo y hay aliados
+            if (!FrameContext.current().isAlliesAvailable()) {
                 return;
             }
 
-            // Verificar si el jugador tiene una carta de defensa en la mano
-            if (AbstractDungeon.player != null && AbstractDungeon.player.hand != null) {
-                for (AbstractCard card : AbstractDungeon.player.hand.group) {
-                    if (DefenseCardDetector.isDefenseCard(card) && card.isGlowing) {
-                        AllyManager.render(sb);
-                        break;
-                    }
-                }
+            // Verificar si el jugador tiene una carta de defensa jugable en la mano
+            if (HandIndex.hasGlowingDefenseCard()) {
+                AllyManager.render(sb);
             }
         }
     }
 
+    private static final String SHARE_TIP_TITLE = "Compartir defensa";
+    private static final float TIP_OFFSET_X = 320.0f;
+
     /**
-     * Patch para mostrar tooltips de compartir defensa
+     * Patch para mostrar tooltips de compartir defensa con el block que recibiría cada aliado
      */
     @SpirePatch(
         clz = AbstractCard.class,
@@ -118,17 +118,17 @@ public class RenderPatch {
 
         @SpirePostfixPatch
         public static void Postfix(AbstractCard __instance, SpriteBatch sb) {
-            if (!DefenseShareMod.isTogetherInSpireLoaded() ||
-                !DefenseCardDetector.isDefenseCard(__instance) ||
-                !AllyManager.hasAlliesAvailable()) {
+            if (!FrameContext.current().isSharingAvailable() || !__instance.hb.hovered ||
+                !DefenseCardDetector.isDefenseCard(__instance) || !HandIndex.contains(__instance)) {
                 return;
             }
 
-            // Agregar tooltip adicional indicando que se puede compartir
-            // El tooltip aparece cuando el mouse está sobre la carta
-            if (__instance.hb.hovered) {
-                // El tooltip adicional se manejaría aquí
-                // Por simplicidad, el indicador [ALLY] en la carta es suficiente
+            // Memorizado en la carta: no se recorren los poderes en cada frame
+            String body = BlockProjection.getTipBody(__instance);
+            if (body != null) {
+                float x = __instance.current_x - __instance.hb.width / 2.0f - TIP_OFFSET_X * Settings.scale;
+                float y = __instance.current_y + __instance.hb.height / 2.0f;
+                TipHelper.renderGenericTip(x, y, SHARE_TIP_TITLE, body);
             }
         }
     }
@@ -0,0 +1,72 @@
+package defenseshare.patches;
+
+import com.evacipated.cardcrawl.modthespire.lib.*;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+
+import defenseshare.util.ThreatIndex;
+
+/**
+ * Eventos que mantienen ThreatIndex al día: vida y block de los aliados
+ * e intents de los monstruos (daño entrante por objetivo). Sin paramtypez se parchean todas las sobrecargas.
+ */
+public class ThreatIndexPatch {
+
+    // AbstractCreature.damage es abstracto; los aliados de TiS son AbstractMonster
+    @SpirePatch(clz = AbstractMonster.class, method = "damage")
+    public static class DamagePatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractMonster __instance) {
+            ThreatIndex.onCreatureChanged(__instance);
+        }
+    }
+
+    @SpirePatch(clz = AbstractCreature.class, method = "heal")
+    public static class HealPatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractCreature __instance) {
+            ThreatIndex.onCreatureChanged(__instance);
+        }
+    }
+
+    @SpirePatch(clz = AbstractCreature.class, method = "addBlock")
+    public static class AddBlockPatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractCreature __instance) {
+            ThreatIndex.onCreatureChanged(__instance);
+        }
+    }
+
+    @SpirePatch(clz = AbstractCreature.class, method = "loseBlock")
+    public static class LoseBlockPatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractCreature __instance) {
+            ThreatIndex.onCreatureChanged(__instance);
+        }
+    }
+
+    @SpirePatch(clz = AbstractMonster.class, method = "createIntent")
+    public static class CreateIntentPatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractMonster __instance) {
+            ThreatIndex.onIntentChanged(__instance);
+        }
+    }
+
+    // El daño del intent se recalcula con los poderes (Fuerza, Débil...)
+    @SpirePatch(clz = AbstractMonster.class, method = "applyPowers")
+    public static class ApplyPowersPatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractMonster __instance) {
+            ThreatIndex.onIntentChanged(__instance);
+        }
+    }
+
+    @SpirePatch(clz = AbstractMonster.class, method = "die")
+    public static class DiePatch {
+        @SpirePostfixPatch
+        public static void Postfix(AbstractMonster __instance) {
+            ThreatIndex.onMonsterGone(__instance);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package defenseshare.telemetry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estadísticas del log de telemetría de shares, desde línea de comandos:
+ * <pre>
+ * java -cp DefenseShareMod.jar defenseshare.telemetry.ShareLogAnalyzer [directorio]
+ * </pre>
+ * El directorio es el de ShareTelemetry (SpireConfig/DefenseShareMod/telemetry).
+ * Los segmentos se leen por bloques con un buffer fijo: la memoria no depende
+ * del tamaño del log. No necesita el juego en el classpath.
+ */
+public final class ShareLogAnalyzer {
+
+    // Registros leídos por bloque
+    private static final int CHUNK_RECORDS = 2048;
+
+    /**
+     * Totales de un jugador o de una carta
+     */
+    static final class Stats {
+        final String name;
+        int shares;
+        long block;
+        int maxBlock;
+        int failures;
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void addShare(int amount) {
+            shares++;
+            block += amount;
+            maxBlock = Math.max(maxBlock, amount);
+        }
+    }
+
+    private final List<String> dictionary;
+    private final Map<Integer, Stats> given = new HashMap<>();
+    private final Map<Integer, Stats> received = new HashMap<>();
+    private final Map<Integer, Stats> cards = new HashMap<>();
+    private final Map<Integer, Integer> failuresByReason = new HashMap<>();
+    private long records = 0;
+    private long rosterChanges = 0;
+    private long firstTime = Long.MAX_VALUE;
+    private long lastTime = Long.MIN_VALUE;
+
+    private ShareLogAnalyzer(List<String> dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : ".");
+        List<Path> segments = TelemetryLog.listSegments(directory);
+        if (segments.isEmpty()) {
+            System.err.println("No hay segmentos de telemetría en " + directory.toAbsolutePath());
+            System.exit(1);
+        }
+
+        analyze(directory).print(System.out);
+    }
+
+    /**
+     * Lee todos los segmentos del directorio con su diccionario
+     */
+    static ShareLogAnalyzer analyze(Path directory) throws IOException {
+        ShareLogAnalyzer analyzer = new ShareLogAnalyzer(
+            TelemetryDictionary.load(directory.resolve(TelemetryDictionary.FILE_NAME)));
+        for (Path segment : TelemetryLog.listSegments(directory)) {
+            analyzer.readSegment(segment);
+        }
+        return analyzer;
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    long getRosterChanges() {
+        return rosterChanges;
+    }
+
+    /**
+     * Totales del jugador que dio el block, por nombre; null si no aparece
+     */
+    Stats getGiven(String name) {
+        return find(given, name);
+    }
+
+    Stats getReceived(String name) {
+        return find(received, name);
+    }
+
+    Stats getCard(String cardId) {
+        return find(cards, cardId);
+    }
+
+    int getFailures(int reason) {
+        return failuresByReason.getOrDefault(reason, 0);
+    }
+
+    private static Stats find(Map<Integer, Stats> map, String name) {
+        for (Stats stats : map.values()) {
+            if (stats.name.equals(name)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    private void readSegment(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(TelemetryRecord.HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != TelemetryRecord.MAGIC || header.getShort(4) != TelemetryRecord.FORMAT ||
+                header.getShort(6) != TelemetryRecord.SIZE) {
+                System.err.println("Segmento con formato desconocido, se ignora: " + segment.getFileName());
+                return;
+            }
+            long available = (channel.size() - TelemetryRecord.HEADER_SIZE) / TelemetryRecord.SIZE;
+            long count = Math.min(header.getInt(TelemetryRecord.HEADER_COUNT_OFFSET), available);
+
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_RECORDS * TelemetryRecord.SIZE);
+            TelemetryRecord record = new TelemetryRecord();
+            long position = TelemetryRecord.HEADER_SIZE;
+            for (long done = 0; done < count; ) {
+                int n = (int) Math.min(CHUNK_RECORDS, count - done);
+                chunk.clear();
+                chunk.limit(n * TelemetryRecord.SIZE);
+                readFully(channel, chunk, position);
+                for (int i = 0; i < n; i++) {
+                    accept(record.wrap(chunk, i * TelemetryRecord.SIZE));
+                }
+                done += n;
+                position += (long) n * TelemetryRecord.SIZE;
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Segmento truncado");
+            }
+            position += read;
+        }
+    }
+
+    private void accept(TelemetryRecord record) {
+        records++;
+        firstTime = Math.min(firstTime, record.getTime());
+        lastTime = Math.max(lastTime, record.getTime());
+
+        switch (record.getType()) {
+            case TelemetryRecord.TYPE_SHARE:
+                stats(given, record.getActor()).addShare(record.getAmount());
+                stats(received, record.getTarget()).addShare(record.getAmount());
+                stats(cards, record.getCard()).addShare(record.getAmount());
+                break;
+            case TelemetryRecord.TYPE_REDIRECT_FAILURE:
+                stats(given, record.getActor()).failures++;
+                stats(cards, record.getCard()).failures++;
+                failuresByReason.merge(record.getCode(), 1, Integer::sum);
+                break;
+            case TelemetryRecord.TYPE_ROSTER_CHANGE:
+                rosterChanges++;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Stats stats(Map<Integer, Stats> map, int id) {
+        Stats stats = map.get(id);
+        if (stats == null) {
+            stats = new Stats(name(id));
+            map.put(id, stats);
+        }
+        return stats;
+    }
+
+    private String name(int id) {
+        if (id == TelemetryRecord.NO_ID) {
+            return "(ninguno)";
+        }
+        return id >= 0 && id < dictionary.size() ? dictionary.get(id) : "#" + id;
+    }
+
+    private void print(PrintStream out) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        out.println("Registros: " + records + ", cambios de roster: " + rosterChanges);
+        if (records > 0) {
+            out.println("Desde " + format.format(new Date(firstTime)) + " hasta " + format.format(new Date(lastTime)));
+        }
+
+        printTable(out, "Block dado por jugador", given);
+        printTable(out, "Block recibido por aliado", received);
+        printTable(out, "Block por carta", cards);
+
+        if (!failuresByReason.isEmpty()) {
+            out.println();
+            out.println("Fallos de redirección");
+            for (Map.Entry<Integer, Integer> entry : failuresByReason.entrySet()) {
+                out.println(String.format("  %-24s %8d", TelemetryRecord.getFailureName(entry.getKey()), entry.getValue()));
+            }
+        }
+    }
+
+    private static void printTable(PrintStream out, String title, Map<Integer, Stats> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        List<Stats> rows = new ArrayList<>(map.values());
+        rows.sort((a, b) -> Long.compare(b.block, a.block));
+
+        out.println();
+        out.println(title);
+        out.println(String.format("  %-24s %8s %10s %8s %8s %8s", "", "shares", "block", "media", "max", "fallos"));
+        for (Stats row : rows) {
+            out.println(String.format("  %-24s %8d %10d %8.1f %8d %8d", row.name, row.shares, row.block,
+                row.shares > 0 ? (double) row.block / row.shares : 0.0, row.maxBlock, row.failures));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package defenseshare.telemetry;
+
+import com.evacipated.cardcrawl.modthespire.lib.ConfigUtils;
+import com.megacrit.cardcrawl.actions.GameActionManager;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import defenseshare.DefenseShareMod;
+import defenseshare.util.CardIdRegistry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Telemetría de shares: quién compartió cuánto block con quién, fallos de
+ * redirección y cambios de roster, entre partidas.
+ *
+ * Los registros van a un TelemetryLog mapeado en memoria en el directorio de
+ * SpireConfig (DefenseShareMod/telemetry) y se leen con ShareLogAnalyzer.
+ * Se desactiva con -Ddefenseshare.telemetry=false, o sola si falla la E/S.
+ * Solo desde el hilo del juego.
+ */
+public final class ShareTelemetry {
+
+    private static final Logger logger = LogManager.getLogger(ShareTelemetry.class.getName());
+
+    public static final String DIRECTORY = "telemetry";
+
+    // 32768 registros de 32 bytes: 1 MiB por segmento, como mucho 4 MiB en disco
+    private static final int SEGMENT_RECORDS = 32 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+
+    private static final boolean ENABLED = !"false".equals(System.getProperty("defenseshare.telemetry"));
+
+    private static TelemetryLog log = null;
+    private static TelemetryDictionary dictionary = null;
+
+    private ShareTelemetry() {}
+
+    public static Path getDirectory() {
+        return Paths.get(ConfigUtils.CONFIG_DIR, DefenseShareMod.MOD_ID, DIRECTORY);
+    }
+
+    /**
+     * Abre el log; llamar una vez en PostInitialize
+     */
+    public static void initialize() {
+        if (!ENABLED || log != null) {
+            return;
+        }
+        Path directory = getDirectory();
+        try {
+            log = TelemetryLog.open(directory, SEGMENT_RECORDS, MAX_SEGMENTS);
+            dictionary = TelemetryDictionary.open(directory.resolve(TelemetryDictionary.FILE_NAME));
+            logger.info("Telemetría de shares en " + directory);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Telemetría desactivada: " + e.getMessage());
+            log = null;
+            dictionary = null;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return log != null;
+    }
+
+    /**
+     * Block aplicado a un aliado al cerrar un share
+     */
+    public static void recordShare(AbstractCreature ally, int cardOrdinal, int slot, int amount) {
+        if (log != null) {
+            append(TelemetryRecord.TYPE_SHARE, 0, slot, ally.name, cardOrdinal, amount);
+        }
+    }
+
+    /**
+     * Share cerrado sin aplicar block (FAILURE_*)
+     */
+    public static void recordRedirectFailure(AbstractCreature ally, int cardOrdinal, int slot, int reason, int amount) {
+        if (log != null) {
+            append(TelemetryRecord.TYPE_REDIRECT_FAILURE, reason, slot, ally.name, cardOrdinal, amount);
+        }
+    }
+
+    /**
+     * Nuevo roster publicado por AllyManager
+     */
+    public static void recordRosterChange(int size) {
+        if (log != null) {
+            append(TelemetryRecord.TYPE_ROSTER_CHANGE, 0, -1, null, CardIdRegistry.UNKNOWN, size);
+        }
+    }
+
+    private static void append(int type, int code, int slot, String target, int cardOrdinal, int amount) {
+        try {
+            int actor = dictionary.idOf(AbstractDungeon.player != null ? AbstractDungeon.player.name : null);
+            int card = dictionary.idOf(CardIdRegistry.getId(cardOrdinal));
+            log.append(System.currentTimeMillis(), type, code, slot, GameActionManager.turn,
+                actor, dictionary.idOf(target), card, amount);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Telemetría desactivada: " + e.getMessage());
+            log = null;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package defenseshare.telemetry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diccionario de cadenas (nombres de jugador, IDs de carta) del log de telemetría.
+ *
+ * Los registros guardan ids enteros; el texto va a un fichero aparte con una
+ * cadena por línea, siendo el id el número de línea. Solo se escribe la
+ * primera vez que aparece cada cadena, así que casi nunca toca disco.
+ * Compartido por todos los segmentos y entre partidas.
+ */
+public final class TelemetryDictionary implements Closeable {
+
+    public static final String FILE_NAME = "shares.dict";
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final BufferedWriter writer;
+
+    private TelemetryDictionary(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Abre el diccionario para añadir cadenas, cargando las ya existentes
+     */
+    public static TelemetryDictionary open(Path path) throws IOException {
+        List<String> existing = Files.isRegularFile(path) ?
+            Files.readAllLines(path, StandardCharsets.UTF_8) : new ArrayList<>();
+        BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        TelemetryDictionary dictionary = new TelemetryDictionary(writer);
+        for (String value : existing) {
+            dictionary.add(value);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Carga el diccionario solo para lectura (ShareLogAnalyzer)
+     */
+    public static List<String> load(Path path) throws IOException {
+        return Files.isRegularFile(path) ?
+            Files.readAllLines(path, StandardCharsets.UTF_8) : new ArrayList<>();
+    }
+
+    /**
+     * Id de la cadena, añadiéndola al fichero si es nueva; NO_ID para null
+     */
+    public int idOf(String value) throws IOException {
+        if (value == null) {
+            return TelemetryRecord.NO_ID;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        String line = value.replace('\n', ' ').replace('\r', ' ');
+        int newId = add(line);
+        if (!line.equals(value)) {
+            ids.put(value, newId);
+        }
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+        return newId;
+    }
+
+    private int add(String value) {
+        int id = values.size();
+        values.add(value);
+        ids.put(value, id);
+        return id;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
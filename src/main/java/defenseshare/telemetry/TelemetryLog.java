@@ -0,0 +1,182 @@
+package defenseshare.telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Log binario de solo añadir, escrito sobre un fichero mapeado en memoria.
+ *
+ * Cada segmento tiene tamaño fijo y se mapea entero al abrirlo: añadir un
+ * registro son unos put absolutos sobre el buffer, sin llamadas al sistema
+ * ni objetos nuevos. El contador de la cabecera se actualiza tras cada
+ * registro, así que un cierre brusco pierde como mucho el último.
+ * Al llenarse un segmento se abre el siguiente y se borran los más antiguos
+ * por encima de maxSegments. Solo desde el hilo del juego.
+ */
+public final class TelemetryLog {
+
+    private static final String SEGMENT_PREFIX = "shares-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int maxSegments;
+
+    private MappedByteBuffer buffer = null;
+    private int segmentIndex = -1;
+    private int count = 0;
+
+    private TelemetryLog(Path directory, int segmentRecords, int maxSegments) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Abre el log continuando el último segmento si es válido y tiene sitio
+     */
+    public static TelemetryLog open(Path directory, int segmentRecords, int maxSegments) throws IOException {
+        Files.createDirectories(directory);
+        TelemetryLog log = new TelemetryLog(directory, segmentRecords, maxSegments);
+
+        List<Path> segments = listSegments(directory);
+        if (!segments.isEmpty()) {
+            Path last = segments.get(segments.size() - 1);
+            int index = parseIndex(last);
+            if (!log.resume(last, index)) {
+                log.openSegment(index + 1);
+            }
+        } else {
+            log.openSegment(0);
+        }
+        return log;
+    }
+
+    /**
+     * Segmentos existentes en orden de escritura
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                if (parseIndex(path) >= 0) {
+                    segments.add(path);
+                }
+            }
+        }
+        // Nombres con índice de ancho fijo: el orden alfabético es el de escritura
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static int parseIndex(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private boolean resume(Path path, int index) throws IOException {
+        long size = Files.size(path);
+        if (size != TelemetryRecord.HEADER_SIZE + (long) segmentRecords * TelemetryRecord.SIZE) {
+            return false;
+        }
+        MappedByteBuffer mapped = map(path, size);
+        int records = mapped.getInt(TelemetryRecord.HEADER_COUNT_OFFSET);
+        if (mapped.getInt(0) != TelemetryRecord.MAGIC || mapped.getShort(4) != TelemetryRecord.FORMAT ||
+            mapped.getShort(6) != TelemetryRecord.SIZE || records < 0 || records >= segmentRecords) {
+            return false;
+        }
+        buffer = mapped;
+        segmentIndex = index;
+        count = records;
+        return true;
+    }
+
+    private void openSegment(int index) throws IOException {
+        long size = TelemetryRecord.HEADER_SIZE + (long) segmentRecords * TelemetryRecord.SIZE;
+        Path path = segmentPath(index);
+        // Soltar el segmento anterior: el mapeo se libera con el buffer y el fichero se puede borrar
+        buffer = null;
+        Files.deleteIfExists(path);
+        MappedByteBuffer mapped = map(path, size);
+        mapped.putInt(0, TelemetryRecord.MAGIC);
+        mapped.putShort(4, TelemetryRecord.FORMAT);
+        mapped.putShort(6, (short) TelemetryRecord.SIZE);
+        mapped.putInt(TelemetryRecord.HEADER_COUNT_OFFSET, 0);
+
+        buffer = mapped;
+        segmentIndex = index;
+        count = 0;
+        deleteOldSegments();
+    }
+
+    private MappedByteBuffer map(Path path, long size) throws IOException {
+        // El mapeo sigue siendo válido después de cerrar el canal
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void deleteOldSegments() {
+        List<Path> segments;
+        try {
+            segments = listSegments(directory);
+        } catch (IOException e) {
+            return;
+        }
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            try {
+                Files.deleteIfExists(segments.get(i));
+            } catch (IOException ignored) {
+                // En Windows un segmento aún mapeado no se puede borrar; se reintentará en la próxima rotación
+            }
+        }
+    }
+
+    /**
+     * Añade un registro; rota de segmento si el actual está lleno
+     */
+    public void append(long time, int type, int code, int slot, int turn,
+                       int actor, int target, int card, int amount) throws IOException {
+        if (count >= segmentRecords) {
+            openSegment(segmentIndex + 1);
+        }
+        ByteBuffer b = buffer;
+        int offset = TelemetryRecord.HEADER_SIZE + count * TelemetryRecord.SIZE;
+        b.putLong(offset + TelemetryRecord.TIME, time);
+        b.put(offset + TelemetryRecord.TYPE, (byte) type);
+        b.put(offset + TelemetryRecord.CODE, (byte) code);
+        b.put(offset + TelemetryRecord.SLOT, (byte) slot);
+        b.putInt(offset + TelemetryRecord.TURN, turn);
+        b.putInt(offset + TelemetryRecord.ACTOR, actor);
+        b.putInt(offset + TelemetryRecord.TARGET, target);
+        b.putInt(offset + TelemetryRecord.CARD, card);
+        b.putInt(offset + TelemetryRecord.AMOUNT, amount);
+        count++;
+        b.putInt(TelemetryRecord.HEADER_COUNT_OFFSET, count);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,85 @@
+package defenseshare.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Formato de los segmentos del log de telemetría.
+ *
+ * Cada segmento empieza con una cabecera del tamaño de un registro:
+ * MAGIC(int) FORMAT(short) tamaño de registro(short) registros escritos(int).
+ * Le siguen registros fijos de 32 bytes:
+ * <pre>
+ *  0 long  instante (ms desde epoch)
+ *  8 byte  tipo (TYPE_*)
+ *  9 byte  código (motivo del fallo, 0 en el resto)
+ * 10 byte  slot del aliado (-1 si no está en el roster)
+ * 11 byte  reservado
+ * 12 int   turno
+ * 16 int   jugador que comparte (id del diccionario)
+ * 20 int   aliado (id del diccionario, -1 si no aplica)
+ * 24 int   carta (id del diccionario, -1 si no aplica)
+ * 28 int   block, o tamaño del roster en TYPE_ROSTER_CHANGE
+ * </pre>
+ * Sin dependencias del juego: lo usa también ShareLogAnalyzer.
+ */
+public final class TelemetryRecord {
+
+    public static final int MAGIC = 0x44534C47; // "DSLG"
+    public static final short FORMAT = 1;
+    public static final int SIZE = 32;
+    public static final int HEADER_SIZE = SIZE;
+    public static final int HEADER_COUNT_OFFSET = 8;
+
+    public static final int TYPE_SHARE = 1;
+    public static final int TYPE_REDIRECT_FAILURE = 2;
+    public static final int TYPE_ROSTER_CHANGE = 3;
+
+    public static final int FAILURE_ALLY_DEAD = 1;
+    public static final int FAILURE_NO_BLOCK = 2;
+
+    public static final int NO_ID = -1;
+
+    static final int TIME = 0;
+    static final int TYPE = 8;
+    static final int CODE = 9;
+    static final int SLOT = 10;
+    static final int TURN = 12;
+    static final int ACTOR = 16;
+    static final int TARGET = 20;
+    static final int CARD = 24;
+    static final int AMOUNT = 28;
+
+    // Vista sobre el registro en la posición actual del buffer
+    private ByteBuffer buffer;
+    private int base;
+
+    /**
+     * Apunta este lector al registro que empieza en offset
+     */
+    public TelemetryRecord wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.base = offset;
+        return this;
+    }
+
+    public long getTime() { return buffer.getLong(base + TIME); }
+    public int getType() { return buffer.get(base + TYPE); }
+    public int getCode() { return buffer.get(base + CODE); }
+    public int getSlot() { return buffer.get(base + SLOT); }
+    public int getTurn() { return buffer.getInt(base + TURN); }
+    public int getActor() { return buffer.getInt(base + ACTOR); }
+    public int getTarget() { return buffer.getInt(base + TARGET); }
+    public int getCard() { return buffer.getInt(base + CARD); }
+    public int getAmount() { return buffer.getInt(base + AMOUNT); }
+
+    public static String getFailureName(int code) {
+        switch (code) {
+            case FAILURE_ALLY_DEAD:
+                return "aliado muerto";
+            case FAILURE_NO_BLOCK:
+                return "sin block";
+            default:
+                return "desconocido (" + code + ")";
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package defenseshare.util;
+
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.core.Settings;
+
+import java.util.Arrays;
+
+/**
+ * Hitboxes de los aliados precalculadas en arrays de floats.
+ *
+ * Cada aliado aporta hasta dos rectángulos: su Hitbox y el rectángulo de
+ * respaldo de 150x200 centrado en drawX/drawY. Solo se reconstruyen cuando
+ * cambia la disposición (inicio de combate, cambio de resolución o de escala,
+ * cambio de roster, o un aliado que se mueve: hb.cX/cY o drawX/drawY). Cada
+ * consulta comprueba la posición de un solo aliado, por turnos, así que un
+ * movimiento se detecta en como mucho tantas consultas como aliados. Con
+ * lobbies grandes se añade una rejilla uniforme para que resolver el hover
+ * cueste lo mismo con 4 que con 16+ jugadores.
+ * Solo desde el hilo del juego.
+ */
+public final class AllyHitboxIndex {
+
+    private static final float FALLBACK_WIDTH = 150.0f;
+    private static final float FALLBACK_HEIGHT = 200.0f;
+
+    // A partir de este número de rectángulos se usa la rejilla
+    private static final int GRID_THRESHOLD = 16;
+
+    // Rectángulos: slot del roster al que pertenecen y límites
+    private static int count = 0;
+    private static int[] rectSlot = new int[0];
+    private static float[] minX = new float[0];
+    private static float[] minY = new float[0];
+    private static float[] maxX = new float[0];
+    private static float[] maxY = new float[0];
+
+    // Rejilla uniforme en formato CSR: los rectángulos de la celda c están en
+    // cellItems[cellStart[c] .. cellStart[c + 1])
+    private static boolean gridActive = false;
+    private static float gridX, gridY, cellWidth, cellHeight;
+    private static int columns, rows;
+    private static int[] cellStart = new int[0];
+    private static int[] cellItems = new int[0];
+
+    // Disposición con la que se construyó
+    private static boolean dirty = true;
+    private static int builtRosterVersion = -1;
+    private static int builtWidth = -1;
+    private static int builtHeight = -1;
+    private static float builtScale = -1.0f;
+
+    // Se incrementa en cada reconstrucción: otras caches de la disposición lo comparan
+    private static int buildStamp = 0;
+
+    // Posición de cada slot con la que se construyó (centro del Hitbox y drawX/drawY)
+    private static float[] builtCX = new float[0];
+    private static float[] builtCY = new float[0];
+    private static float[] builtDrawX = new float[0];
+    private static float[] builtDrawY = new float[0];
+
+    // Siguiente slot cuya posición se comprueba
+    private static int probe = 0;
+
+    private AllyHitboxIndex() {}
+
+    /**
+     * Fuerza la reconstrucción en la próxima consulta (inicio de combate)
+     */
+    public static void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Sello de la disposición actual: cambia cuando las hitboxes se reconstruyen
+     * (roster, resolución, escala o un aliado que se mueve)
+     */
+    public static int getBuildStamp(RosterSnapshot<AbstractCreature> roster) {
+        ensureFresh(roster);
+        return buildStamp;
+    }
+
+    /**
+     * Slot del roster bajo el punto, o -1. Con varios, el de menor slot.
+     */
+    public static int findSlotAt(RosterSnapshot<AbstractCreature> roster, float x, float y) {
+        ensureFresh(roster);
+
+        int best = -1;
+        if (gridActive) {
+            int column = (int) ((x - gridX) / cellWidth);
+            int row = (int) ((y - gridY) / cellHeight);
+            if (x < gridX || y < gridY || column >= columns || row >= rows) {
+                return -1;
+            }
+            int cell = row * columns + column;
+            for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                best = test(cellItems[k], x, y, best);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                best = test(i, x, y, best);
+            }
+        }
+        return best;
+    }
+
+    private static int test(int rect, float x, float y, int best) {
+        if (x >= minX[rect] && x <= maxX[rect] && y >= minY[rect] && y <= maxY[rect]) {
+            int slot = rectSlot[rect];
+            if (best < 0 || slot < best) {
+                return slot;
+            }
+        }
+        return best;
+    }
+
+    private static void ensureFresh(RosterSnapshot<AbstractCreature> roster) {
+        if (!dirty && roster.getVersion() == builtRosterVersion && Settings.WIDTH == builtWidth &&
+            Settings.HEIGHT == builtHeight && Settings.scale == builtScale && !hasMoved(roster)) {
+            return;
+        }
+        dirty = false;
+        builtRosterVersion = roster.getVersion();
+        builtWidth = Settings.WIDTH;
+        builtHeight = Settings.HEIGHT;
+        builtScale = Settings.scale;
+        build(roster);
+    }
+
+    /**
+     * El aliado del slot de turno cambió de posición desde la construcción (O(1))
+     */
+    private static boolean hasMoved(RosterSnapshot<AbstractCreature> roster) {
+        if (roster.size() == 0) {
+            return false;
+        }
+        if (probe >= roster.size()) {
+            probe = 0;
+        }
+        int slot = probe++;
+        AbstractCreature ally = roster.get(slot);
+        float cX = ally.hb != null ? ally.hb.cX : 0.0f;
+        float cY = ally.hb != null ? ally.hb.cY : 0.0f;
+        return cX != builtCX[slot] || cY != builtCY[slot] ||
+            ally.drawX != builtDrawX[slot] || ally.drawY != builtDrawY[slot];
+    }
+
+    private static void build(RosterSnapshot<AbstractCreature> roster) {
+        buildStamp++;
+        if (builtCX.length < roster.size()) {
+            builtCX = new float[roster.size()];
+            builtCY = new float[roster.size()];
+            builtDrawX = new float[roster.size()];
+            builtDrawY = new float[roster.size()];
+        }
+
+        int capacity = roster.size() * 2;
+        if (rectSlot.length < capacity) {
+            rectSlot = new int[capacity];
+            minX = new float[capacity];
+            minY = new float[capacity];
+            maxX = new float[capacity];
+            maxY = new float[capacity];
+        }
+
+        float halfWidth = FALLBACK_WIDTH * Settings.scale / 2.0f;
+        float halfHeight = FALLBACK_HEIGHT * Settings.scale / 2.0f;
+
+        count = 0;
+        for (int slot = 0; slot < roster.size(); slot++) {
+            AbstractCreature ally = roster.get(slot);
+            builtCX[slot] = ally.hb != null ? ally.hb.cX : 0.0f;
+            builtCY[slot] = ally.hb != null ? ally.hb.cY : 0.0f;
+            builtDrawX[slot] = ally.drawX;
+            builtDrawY[slot] = ally.drawY;
+            if (ally.hb != null) {
+                add(slot, ally.hb.x, ally.hb.y, ally.hb.x + ally.hb.width, ally.hb.y + ally.hb.height);
+            }
+            add(slot, ally.drawX - halfWidth, ally.drawY - halfHeight, ally.drawX + halfWidth, ally.drawY + halfHeight);
+        }
+
+        gridActive = count >= GRID_THRESHOLD;
+        if (gridActive) {
+            buildGrid();
+        }
+    }
+
+    private static void add(int slot, float x0, float y0, float x1, float y1) {
+        rectSlot[count] = slot;
+        minX[count] = x0;
+        minY[count] = y0;
+        maxX[count] = x1;
+        maxY[count] = y1;
+        count++;
+    }
+
+    /**
+     * Rejilla sobre el área ocupada, con celdas del tamaño del rectángulo más grande:
+     * cada rectángulo cae en como mucho 4 celdas
+     */
+    private static void buildGrid() {
+        float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE, x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+        float largestWidth = 1.0f, largestHeight = 1.0f;
+        for (int i = 0; i < count; i++) {
+            x0 = Math.min(x0, minX[i]);
+            y0 = Math.min(y0, minY[i]);
+            x1 = Math.max(x1, maxX[i]);
+            y1 = Math.max(y1, maxY[i]);
+            largestWidth = Math.max(largestWidth, maxX[i] - minX[i]);
+            largestHeight = Math.max(largestHeight, maxY[i] - minY[i]);
+        }
+
+        gridX = x0;
+        gridY = y0;
+        cellWidth = largestWidth;
+        cellHeight = largestHeight;
+        columns = (int) ((x1 - x0) / cellWidth) + 1;
+        rows = (int) ((y1 - y0) / cellHeight) + 1;
+
+        int cells = columns * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+
+        // Primera pasada: contar; segunda: repartir
+        for (int i = 0; i < count; i++) {
+            for (int row = rowOf(minY[i]); row <= rowOf(maxY[i]); row++) {
+                for (int column = columnOf(minX[i]); column <= columnOf(maxX[i]); column++) {
+                    cellStart[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        if (cellItems.length < cellStart[cells]) {
+            cellItems = new int[cellStart[cells]];
+        }
+        int[] fill = new int[cells];
+        for (int i = 0; i < count; i++) {
+            for (int row = rowOf(minY[i]); row <= rowOf(maxY[i]); row++) {
+                for (int column = columnOf(minX[i]); column <= columnOf(maxX[i]); column++) {
+                    int cell = row * columns + column;
+                    cellItems[cellStart[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    private static int columnOf(float x) {
+        return Math.min(columns - 1, (int) ((x - gridX) / cellWidth));
+    }
+
+    private static int rowOf(float y) {
+        return Math.min(rows - 1, (int) ((y - gridY) / cellHeight));
+    }
+}
@@ -0,0 +1,100 @@
+package defenseshare.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.megacrit.cardcrawl.core.Settings;
+import com.megacrit.cardcrawl.helpers.FontHelper;
+
+/**
+ * Indicador "ALLY" de las cartas rasterizado una sola vez en una textura.
+ *
+ * Se hornea en blanco con cardTitleFont en un FrameBuffer y se tiñe al
+ * dibujar, así que cada carta es un único sprite y todas comparten textura
+ * (un solo lote). Se vuelve a hornear solo si cambia la escala o el idioma.
+ * Hornear usa su propio SpriteBatch: se llama desde update, nunca durante el render.
+ */
+public final class AllyIndicatorCache {
+
+    // Margen para que los bordes de los glifos no se corten
+    private static final int PADDING = 4;
+
+    private static FrameBuffer frameBuffer = null;
+    private static TextureRegion region = null;
+    private static float bakedScale = -1.0f;
+    private static Settings.GameLanguage bakedLanguage = null;
+
+    private AllyIndicatorCache() {}
+
+    /**
+     * Texto del indicador según el idioma del juego
+     */
+    public static String getLabel(Settings.GameLanguage language) {
+        if (language == Settings.GameLanguage.SPA) {
+            return "ALIADO";
+        }
+        return "ALLY";
+    }
+
+    /**
+     * Hornea el indicador si falta o cambió la escala o el idioma.
+     * Llamar desde receivePreUpdate (fuera del SpriteBatch del juego).
+     */
+    public static void update() {
+        if (FontHelper.cardTitleFont == null) {
+            return;
+        }
+        if (region != null && bakedScale == Settings.scale && bakedLanguage == Settings.language) {
+            return;
+        }
+        bake();
+    }
+
+    /**
+     * Región horneada, o null si todavía no se ha podido hornear
+     */
+    public static TextureRegion getRegion() {
+        return region;
+    }
+
+    private static void bake() {
+        String label = getLabel(Settings.language);
+        GlyphLayout layout = new GlyphLayout(FontHelper.cardTitleFont, label);
+        int width = (int) Math.ceil(layout.width) + PADDING * 2;
+        int height = (int) Math.ceil(layout.height) + PADDING * 2;
+
+        FrameBuffer buffer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+        SpriteBatch batch = new SpriteBatch();
+        batch.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+
+        Color previousColor = FontHelper.cardTitleFont.getColor().cpy();
+        buffer.begin();
+        Gdx.gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        batch.begin();
+        FontHelper.cardTitleFont.setColor(Color.WHITE);
+        // BitmapFont dibuja desde la línea superior del texto
+        FontHelper.cardTitleFont.draw(batch, label, PADDING, height - PADDING);
+        batch.end();
+        buffer.end();
+        FontHelper.cardTitleFont.setColor(previousColor);
+        batch.dispose();
+
+        TextureRegion baked = new TextureRegion(buffer.getColorBufferTexture());
+        // Las texturas de FrameBuffer quedan invertidas en Y
+        baked.flip(false, true);
+
+        if (frameBuffer != null) {
+            frameBuffer.dispose();
+        }
+        frameBuffer = buffer;
+        region = baked;
+        bakedScale = Settings.scale;
+        bakedLanguage = Settings.language;
+    }
+}
@@ -1,10 +1,8 @@
 package defenseshare.util;
 
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.megacrit.cardcrawl.characters.AbstractPlayer;
 import com.megacrit.cardcrawl.core.AbstractCreature;
-import com.megacrit.cardcrawl.core.Settings;
 import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
 import com.megacrit.cardcrawl.helpers.input.InputHelper;
 import com.megacrit.cardcrawl.monsters.AbstractMonster;
@@ -12,176 +10,176 @@ import com.megacrit.cardcrawl.monsters.AbstractMonster;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import defenseshare.ally.AllyProvider;
+import defenseshare.ally.AllyProviders;
+import defenseshare.telemetry.ShareTelemetry;
+
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
- * Manejador de aliados para Together in Spire
- * Detecta y permite seleccionar aliados en partidas cooperativas
+ * Manejador de aliados para partidas cooperativas
+ * Reúne los aliados de los AllyProvider activos y permite seleccionarlos
+ *
+ * Hay un único escritor: el hilo del juego reconstruye el roster en
+ * pollRosterChanges y lo publica como RosterSnapshot inmutable (RosterPublisher).
+ * Cualquier hilo (incluidos los de red de TiS) puede leer la foto actual o
+ * marcar el roster como sucio.
  */
 public class AllyManager {
 
     private static final Logger logger = LogManager.getLogger(AllyManager.class.getName());
 
     // Estado de la selección
-    private static boolean isSelecting = false;
-    private static AbstractCreature selectedAlly = null;
-    private static AbstractCreature hoveredAlly = null;
-
-    // Cache de aliados - usa AbstractCreature para soportar Network* de TiS
-    private static List<AbstractCreature> cachedAllies = new ArrayList<>();
-    private static boolean cacheValid = false;
+    private static volatile boolean isSelecting = false;
+    private static volatile AbstractCreature selectedAlly = null;
+    private static volatile AbstractCreature hoveredAlly = null;
 
-    // Detección de Together in Spire
-    private static boolean tisDetected = false;
-    private static boolean tisInitialized = false;
+    // Roster publicado - usa AbstractCreature para soportar Network* de TiS
+    private static final RosterPublisher<AbstractCreature> publisher = new RosterPublisher<>();
 
-    // Accessors pre-compilados
-    private static Field allCharacterEntitiesField = null;
-    private static Method getPlayersMethod = null;
-    private static boolean accessorsInitialized = false;
+    // Solo del escritor: stamp de la última reconstrucción
+    private static int lastRosterStamp = -1;
 
-    // Configuración visual
-    private static final Color HIGHLIGHT_COLOR = new Color(0.3f, 0.8f, 1.0f, 0.5f);
-    private static final Color SELECTED_COLOR = new Color(0.2f, 1.0f, 0.2f, 0.7f);
+    // Proveedores instalados (los que no lo están nunca se consultan)
+    private static final List<AllyProvider> providers = new ArrayList<>();
+    private static boolean providersInitialized = false;
 
     public static void initialize() {
         logger.info("Inicializando AllyManager...");
-        initializeAccessors();
+        initializeProviders();
     }
 
-    private static void initializeAccessors() {
-        if (accessorsInitialized) return;
-        accessorsInitialized = true;
-
-        try {
-            Class<?> tisClass = Class.forName("spireTogether.SpireTogetherMod");
-            tisDetected = true;
-            tisInitialized = true;
-            logger.info("Together in Spire detectado");
-
-            try {
-                allCharacterEntitiesField = tisClass.getDeclaredField("allCharacterEntities");
-                allCharacterEntitiesField.setAccessible(true);
-                logger.info("Campo allCharacterEntities encontrado");
-            } catch (NoSuchFieldException e) {
-                String[] fieldNames = {"players", "remotePlayers", "otherPlayers"};
-                for (String name : fieldNames) {
-                    try {
-                        allCharacterEntitiesField = tisClass.getDeclaredField(name);
-                        allCharacterEntitiesField.setAccessible(true);
-                        logger.info("Campo " + name + " encontrado");
-                        break;
-                    } catch (NoSuchFieldException ignored) {}
-                }
-            }
-
-            try {
-                getPlayersMethod = tisClass.getMethod("getPlayers");
-                logger.info("Método getPlayers encontrado");
-            } catch (NoSuchMethodException ignored) {}
+    private static void initializeProviders() {
+        if (providersInitialized) return;
+        providersInitialized = true;
 
-        } catch (ClassNotFoundException e) {
-            tisDetected = false;
-            tisInitialized = true;
-            logger.info("Together in Spire no encontrado");
-        }
+        providers.addAll(AllyProviders.loadInstalled(AllyProvider.class.getClassLoader()));
     }
 
     public static boolean hasAlliesAvailable() {
-        if (!tisDetected) return false;
-        if (cacheValid) return !cachedAllies.isEmpty();
-        refreshAlliesCache();
-        return !cachedAllies.isEmpty();
+        return !publisher.get().isEmpty();
     }
 
+    /**
+     * Foto actual del roster; nunca null, sin bloqueo ni copia
+     */
+    public static RosterSnapshot<AbstractCreature> getSnapshot() {
+        return publisher.get();
+    }
+
+    /**
+     * Marca el roster para reconstruir en el próximo frame. Se puede llamar
+     * desde cualquier hilo. Se llama solo ante cambios reales: inicio/fin de
+     * combate, muerte o curación de un aliado y cambios en el roster de algún proveedor.
+     */
     public static void invalidateCache() {
-        cacheValid = false;
+        publisher.invalidate();
     }
 
-    public static void refreshAlliesCache() {
-        cachedAllies.clear();
+    /**
+     * Versión del roster; se incrementa solo cuando cambia la lista de aliados
+     */
+    public static int getRosterVersion() {
+        return publisher.get().getVersion();
+    }
 
-        if (!tisDetected || AbstractDungeon.player == null) {
-            cacheValid = true;
-            return;
+    /**
+     * Comprobación barata (una vez por frame) de entradas/salidas de jugadores.
+     * Solo desde el hilo del juego: es el único punto que reconstruye el roster.
+     */
+    public static void pollRosterChanges() {
+        if (providers.isEmpty()) return;
+        if (publisher.isDirty() || getRosterStamp() != lastRosterStamp) {
+            refreshAlliesCache();
         }
+    }
 
-        try {
-            if (allCharacterEntitiesField != null) {
-                Object value = allCharacterEntitiesField.get(null);
-                if (value instanceof Map) {
-                    Map<?, ?> map = (Map<?, ?>) value;
-                    logger.info("allCharacterEntities size: " + map.size());
-                    for (Map.Entry<?, ?> entry : map.entrySet()) {
-                        Object ally = entry.getValue();
-                        if (ally instanceof AbstractCreature) {
-                            AbstractCreature creature = (AbstractCreature) ally;
-                            // Filtrar: no el jugador actual, con vida, y del paquete Network*
-                            if (creature != AbstractDungeon.player &&
-                                creature.currentHealth > 0 &&
-                                isNetworkPlayer(creature)) {
-                                cachedAllies.add(creature);
-                                logger.info("Aliado añadido: " + creature.name + " (" + creature.getClass().getSimpleName() + ")");
-                            }
-                        }
-                    }
-                }
-            }
+    /**
+     * Llamado cuando una criatura muere o se cura; invalida solo si es un aliado
+     */
+    public static void onCreatureStateChanged(AbstractCreature creature) {
+        if (isAlly(creature)) {
+            invalidateCache();
+        }
+    }
+
+    private static int getRosterStamp() {
+        int stamp = 0;
+        for (int i = 0; i < providers.size(); i++) {
+            stamp = 31 * stamp + providers.get(i).getRosterStamp();
+        }
+        return stamp;
+    }
 
-            if (cachedAllies.isEmpty() && getPlayersMethod != null) {
-                Object result = getPlayersMethod.invoke(null);
-                extractCreaturesFromObject(result);
+    /**
+     * Reconstruye el roster y publica una foto nueva si cambió.
+     * Solo desde el hilo del juego.
+     */
+    private static void refreshAlliesCache() {
+        boolean changed = publisher.rebuild(allies -> {
+            lastRosterStamp = getRosterStamp();
+            if (AbstractDungeon.player == null) {
+                return;
+            }
+            for (AllyProvider provider : providers) {
+                try {
+                    provider.collectAllies(allies);
+                } catch (RuntimeException e) {
+                    logger.error("Error refrescando cache (" + provider.getName() + "): " + e.getMessage());
+                }
             }
+        });
 
-        } catch (Exception e) {
-            logger.error("Error refrescando cache: " + e.getMessage());
+        if (changed) {
+            RosterSnapshot<AbstractCreature> next = publisher.get();
+            ShareTelemetry.recordRosterChange(next.size());
+            logger.debug("Roster de aliados actualizado (v" + next.getVersion() + "): " + next.size() + " aliados");
         }
-
-        logger.info("Cache refrescado. Aliados encontrados: " + cachedAllies.size());
-        cacheValid = true;
     }
 
     /**
-     * Verifica si una criatura es un jugador de red de TiS
+     * Verifica si una criatura es un aliado según algún proveedor activo
      */
-    private static boolean isNetworkPlayer(AbstractCreature creature) {
-        String className = creature.getClass().getName();
-        return className.startsWith("spireTogether.monsters.playerChars.Network");
+    public static boolean isAlly(AbstractCreature creature) {
+        if (creature == null) return false;
+        for (int i = 0; i < providers.size(); i++) {
+            if (providers.get(i).isAlly(creature)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private static void extractCreaturesFromObject(Object obj) {
-        if (obj == null) return;
-        try {
-            if (obj instanceof Map) {
-                Map<?, ?> map = (Map<?, ?>) obj;
-                for (Object value : map.values()) {
-                    addCreatureIfValid(value);
-                }
-            } else if (obj instanceof List) {
-                List<?> list = (List<?>) obj;
-                for (Object item : list) {
-                    addCreatureIfValid(item);
-                }
+    /**
+     * Id de red del aliado según el primer proveedor que lo conozca, o AllyProvider.NO_PLAYER
+     */
+    public static int getPlayerId(AbstractCreature creature) {
+        for (int i = 0; i < providers.size(); i++) {
+            int id = providers.get(i).getPlayerId(creature);
+            if (id != AllyProvider.NO_PLAYER) {
+                return id;
             }
-        } catch (Exception ignored) {}
+        }
+        return AllyProvider.NO_PLAYER;
     }
 
-    private static void addCreatureIfValid(Object obj) {
-        if (obj instanceof AbstractCreature) {
-            AbstractCreature c = (AbstractCreature) obj;
-            if (c != AbstractDungeon.player && c.currentHealth > 0 && isNetworkPlayer(c)) {
-                cachedAllies.add(c);
+    /**
+     * Aliado al que apunta el intent del monstruo según algún proveedor, o null
+     */
+    public static AbstractCreature getIntentTarget(AbstractMonster monster) {
+        for (int i = 0; i < providers.size(); i++) {
+            AbstractCreature target = providers.get(i).getIntentTarget(monster);
+            if (target != null) {
+                return target;
             }
         }
+        return null;
     }
 
     public static void startAllySelection() {
         refreshAlliesCache();
-        if (!cachedAllies.isEmpty()) {
+        if (!publisher.get().isEmpty()) {
             isSelecting = true;
             selectedAlly = null;
             hoveredAlly = null;
@@ -195,30 +193,16 @@ public class AllyManager {
     }
 
     public static boolean updateAllySelection() {
-        if (!isSelecting || cachedAllies.isEmpty()) return false;
-
-        hoveredAlly = null;
-        float mouseX = InputHelper.mX;
-        float mouseY = InputHelper.mY;
-
-        for (AbstractCreature ally : cachedAllies) {
-            if (ally.hb != null && ally.hb.hovered) {
-                hoveredAlly = ally;
-                break;
-            }
-
-            float hitboxWidth = 150 * Settings.scale;
-            float hitboxHeight = 200 * Settings.scale;
+        RosterSnapshot<AbstractCreature> roster = publisher.get();
+        if (!isSelecting || roster.isEmpty()) return false;
 
-            if (mouseX >= ally.drawX - hitboxWidth / 2 && mouseX <= ally.drawX + hitboxWidth / 2 &&
-                mouseY >= ally.drawY - hitboxHeight / 2 && mouseY <= ally.drawY + hitboxHeight / 2) {
-                hoveredAlly = ally;
-                break;
-            }
-        }
+        // Hitboxes precalculadas; se calcula en local y se publica una vez
+        int hoveredSlot = AllyHitboxIndex.findSlotAt(roster, InputHelper.mX, InputHelper.mY);
+        AbstractCreature hovered = hoveredSlot >= 0 ? roster.get(hoveredSlot) : null;
+        hoveredAlly = hovered;
 
-        if (hoveredAlly != null && InputHelper.justClickedLeft) {
-            selectedAlly = hoveredAlly;
+        if (hovered != null && InputHelper.justClickedLeft) {
+            selectedAlly = hovered;
             InputHelper.justClickedLeft = false;
             return true;
         }
@@ -239,28 +223,45 @@ public class AllyManager {
         return hoveredAlly;
     }
 
+    /**
+     * Vista de solo lectura del roster actual (sin copia)
+     */
     public static List<AbstractCreature> getAvailableAllies() {
-        if (!cacheValid) refreshAlliesCache();
-        return new ArrayList<>(cachedAllies);
+        return publisher.get().asList();
     }
 
     public static boolean isSelectingAlly() {
         return isSelecting;
     }
 
-    public static boolean isTogetherInSpireDetected() {
-        if (!tisInitialized) initializeAccessors();
-        return tisDetected;
+    public static boolean hasActiveProviders() {
+        if (!providersInitialized) initializeProviders();
+        return !providers.isEmpty();
     }
 
-    public static void render(SpriteBatch sb) {
-        if (!isSelecting || cachedAllies.isEmpty()) return;
+    /**
+     * Actualiza el aliado bajo el cursor mientras se mantiene el modo aliado
+     * (fuera de la selección, que ya lo hace en updateAllySelection)
+     */
+    public static void updateHover(FrameContext frame) {
+        if (isSelecting) return;
 
-        for (AbstractCreature ally : cachedAllies) {
-            Color color = (ally == hoveredAlly) ? SELECTED_COLOR : HIGHLIGHT_COLOR;
-            if (ally.hb != null) {
-                sb.setColor(color);
-            }
+        RosterSnapshot<AbstractCreature> roster = publisher.get();
+        if (!frame.isSharingAvailable() || !frame.isAllyModeActive() || roster.isEmpty()) {
+            hoveredAlly = null;
+            return;
         }
+        int slot = AllyHitboxIndex.findSlotAt(roster, InputHelper.mX, InputHelper.mY);
+        hoveredAlly = slot >= 0 ? roster.get(slot) : null;
+    }
+
+    /**
+     * Halo de los aliados durante la selección o el modo aliado, en una sola pasada
+     */
+    public static void render(SpriteBatch sb) {
+        RosterSnapshot<AbstractCreature> roster = publisher.get();
+        if (roster.isEmpty() || (!isSelecting && !FrameContext.current().isAllyModeActive())) return;
+
+        AllyOverlay.render(sb, roster, hoveredAlly, selectedAlly);
     }
 }
@@ -0,0 +1,103 @@
+package defenseshare.util;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.core.Settings;
+
+/**
+ * Halo de los aliados dibujado en una sola pasada con ModAtlas.
+ *
+ * La lista de sprites (posición, tamaño, región y color) se reconstruye solo
+ * cuando cambia el aliado bajo el cursor, el seleccionado o la disposición de
+ * los aliados (sello de AllyHitboxIndex: roster, escala o un aliado que se
+ * mueve); el resto de frames solo se reproduce. setColor no vacía el lote,
+ * así que todos los aliados van en un único draw call.
+ */
+public final class AllyOverlay {
+
+    private static final Color HIGHLIGHT_COLOR = new Color(0.3f, 0.8f, 1.0f, 0.5f);
+    private static final Color SELECTED_COLOR = new Color(0.2f, 1.0f, 0.2f, 0.7f);
+
+    // Proporción del halo respecto al ancho del hitbox del aliado
+    private static final float WIDTH_FACTOR = 1.3f;
+    private static final float HEIGHT_FACTOR = 0.45f;
+
+    // Lista de sprites cacheada
+    private static int count = 0;
+    private static float[] x = new float[0];
+    private static float[] y = new float[0];
+    private static float[] width = new float[0];
+    private static float[] height = new float[0];
+    private static boolean[] highlighted = new boolean[0];
+
+    // Estado con el que se construyó
+    private static int builtStamp = -1;
+    private static AbstractCreature builtHovered = null;
+    private static AbstractCreature builtSelected = null;
+
+    private AllyOverlay() {}
+
+    /**
+     * Fuerza la reconstrucción (inicio de combate: los aliados se recolocan)
+     */
+    public static void markDirty() {
+        builtStamp = -1;
+    }
+
+    public static void render(SpriteBatch sb, RosterSnapshot<AbstractCreature> roster, AbstractCreature hovered, AbstractCreature selected) {
+        int stamp = AllyHitboxIndex.getBuildStamp(roster);
+        if (stamp != builtStamp || hovered != builtHovered || selected != builtSelected) {
+            rebuild(roster, hovered, selected, stamp);
+        }
+        if (count == 0) {
+            return;
+        }
+
+        TextureRegion overlay = ModAtlas.getOverlay();
+        TextureRegion ring = ModAtlas.getSelected();
+        for (int i = 0; i < count; i++) {
+            if (highlighted[i]) {
+                sb.setColor(SELECTED_COLOR);
+                sb.draw(ring, x[i], y[i], width[i], height[i]);
+            } else {
+                sb.setColor(HIGHLIGHT_COLOR);
+                sb.draw(overlay, x[i], y[i], width[i], height[i]);
+            }
+        }
+        sb.setColor(Color.WHITE);
+    }
+
+    private static void rebuild(RosterSnapshot<AbstractCreature> roster, AbstractCreature hovered, AbstractCreature selected,
+                                int stamp) {
+        builtStamp = stamp;
+        builtHovered = hovered;
+        builtSelected = selected;
+
+        int size = roster.size();
+        if (x.length < size) {
+            x = new float[size];
+            y = new float[size];
+            width = new float[size];
+            height = new float[size];
+            highlighted = new boolean[size];
+        }
+
+        count = 0;
+        for (int i = 0; i < size; i++) {
+            AbstractCreature ally = roster.get(i);
+            float baseWidth = ally.hb != null ? ally.hb.width : 150 * Settings.scale;
+            float w = baseWidth * WIDTH_FACTOR;
+            float h = baseWidth * HEIGHT_FACTOR;
+
+            // Centrado en los pies del aliado
+            x[count] = ally.drawX - w / 2;
+            y[count] = ally.drawY - h / 2;
+            width[count] = w;
+            height[count] = h;
+            highlighted[count] = ally == hovered || ally == selected;
+            count++;
+        }
+    }
+}
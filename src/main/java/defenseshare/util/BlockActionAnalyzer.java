@@ -0,0 +1,308 @@
+package defenseshare.util;
+
+import com.evacipated.cardcrawl.modthespire.Loader;
+import com.evacipated.cardcrawl.modthespire.ModInfo;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Análisis de bytecode común a BlockBytecodeClassifier (cartas) y
+ * BlockActionRedirectPatch (acciones a redirigir).
+ *
+ * Una acción otorga block si su update(), o un método auxiliar de su propia
+ * clase, llama a addBlock o construye otra acción que otorga block. El
+ * veredicto depende solo de la clase: la tabla se calcula una vez sobre las
+ * clases *Action del juego y de los mods, con un punto fijo para las acciones
+ * que construyen otras. Las clases que no se pueden resolver no otorgan block.
+ * La tabla se construye una vez por partida (getTable) y la comparten ambos.
+ */
+public final class BlockActionAnalyzer {
+
+    private static final Logger logger = LogManager.getLogger(BlockActionAnalyzer.class.getName());
+
+    public static final String ABSTRACT_ACTION = "com.megacrit.cardcrawl.actions.AbstractGameAction";
+
+    /**
+     * El código analizado llama a addBlock
+     */
+    public static final int ADDS_BLOCK = 1;
+
+    /**
+     * El código analizado lee el campo target
+     */
+    public static final int READS_TARGET = 2;
+
+    // Acciones que otorgan block a su target aunque el análisis no lo detecte
+    private static final String[] SEED_ACTIONS = {
+        "com.megacrit.cardcrawl.actions.common.GainBlockAction",
+        "com.evacipated.cardcrawl.mod.stslib.actions.tempHp.AddTemporaryHPAction"
+    };
+
+    private static final String ADD_BLOCK_METHOD = "addBlock";
+
+    // Profundidad máxima al seguir métodos auxiliares de la misma clase
+    private static final int MAX_DEPTH = 2;
+
+    /**
+     * Tabla inmutable de acciones de block
+     */
+    public static final class Table {
+        private final Set<String> blockActions;
+        private final Set<String> targetActions;
+
+        Table(Set<String> blockActions, Set<String> targetActions) {
+            this.blockActions = Collections.unmodifiableSet(blockActions);
+            this.targetActions = Collections.unmodifiableSet(targetActions);
+        }
+
+        /**
+         * La acción otorga block a alguien, directa o indirectamente
+         */
+        public boolean grantsBlock(String className) {
+            return blockActions.contains(className);
+        }
+
+        /**
+         * Acciones que dan block a su target: se pueden redirigir cambiando el target
+         */
+        public Set<String> getTargetActions() {
+            return targetActions;
+        }
+
+        public int size() {
+            return blockActions.size();
+        }
+    }
+
+    // Tabla calculada en la primera consulta
+    private static Table table = null;
+
+    private BlockActionAnalyzer() {}
+
+    /**
+     * ClassPool con las clases del juego y de los mods cargados
+     */
+    public static ClassPool newClassPool() {
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(AbstractCard.class.getClassLoader()));
+        pool.appendClassPath(new LoaderClassPath(BlockActionAnalyzer.class.getClassLoader()));
+        return pool;
+    }
+
+    /**
+     * Tabla de acciones de block; la primera llamada la construye (PostInitialize)
+     */
+    public static synchronized Table getTable() {
+        if (table == null) {
+            long start = System.currentTimeMillis();
+            table = buildTable(newClassPool());
+            logger.info("Acciones de block: " + table.size() + " (" + table.getTargetActions().size() +
+                " redirigibles) en " + (System.currentTimeMillis() - start) + " ms");
+        }
+        return table;
+    }
+
+    /**
+     * Construye la tabla sobre las semillas y las clases *Action del juego y de los mods
+     */
+    private static Table buildTable(ClassPool pool) {
+        Set<String> blockActions = new HashSet<>();
+        Set<String> targetActions = new LinkedHashSet<>();
+        // Acciones sin addBlock propio y las acciones que construyen
+        Map<String, Set<String>> creates = new HashMap<>();
+
+        CtClass abstractAction;
+        try {
+            abstractAction = pool.get(ABSTRACT_ACTION);
+        } catch (NotFoundException e) {
+            return new Table(blockActions, targetActions);
+        }
+
+        for (String seed : SEED_ACTIONS) {
+            if (pool.getOrNull(seed) != null) {
+                blockActions.add(seed);
+                targetActions.add(seed);
+            }
+        }
+
+        for (String className : listActionClassNames()) {
+            if (blockActions.contains(className)) {
+                continue;
+            }
+            try {
+                CtClass clazz = pool.get(className);
+                if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers()) ||
+                    !clazz.subclassOf(abstractAction)) {
+                    continue;
+                }
+                Set<String> created = new HashSet<>();
+                int flags = analyzeAction(clazz, created);
+                if ((flags & ADDS_BLOCK) != 0) {
+                    blockActions.add(className);
+                    if ((flags & READS_TARGET) != 0) {
+                        targetActions.add(className);
+                    }
+                } else if (!created.isEmpty()) {
+                    creates.put(className, created);
+                }
+            } catch (NotFoundException | BadBytecode | RuntimeException e) {
+                logger.debug("No se pudo analizar " + className + ": " + e.getMessage());
+            }
+        }
+
+        // Punto fijo: las acciones que construyen acciones de block también lo son
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, Set<String>> entry : creates.entrySet()) {
+                if (!blockActions.contains(entry.getKey()) && !Collections.disjoint(entry.getValue(), blockActions)) {
+                    blockActions.add(entry.getKey());
+                    changed = true;
+                }
+            }
+        }
+        return new Table(blockActions, targetActions);
+    }
+
+    /**
+     * Analiza update() de una acción y sus auxiliares. Devuelve los flags y
+     * añade a created las clases que construye.
+     */
+    public static int analyzeAction(CtClass action, Set<String> created) throws NotFoundException, BadBytecode {
+        CtMethod update = findMethod(action, "update", "()V", ABSTRACT_ACTION);
+        return update != null ? scan(update, ABSTRACT_ACTION, created) : 0;
+    }
+
+    /**
+     * Recorre un método y los auxiliares de su misma clase (sin pasar de stopAt).
+     * Devuelve los flags y añade a created las clases que construye.
+     */
+    public static int scan(CtMethod method, String stopAt, Set<String> created) throws NotFoundException, BadBytecode {
+        return scan(method, stopAt, created, 0);
+    }
+
+    private static int scan(CtMethod method, String stopAt, Set<String> created, int depth)
+            throws NotFoundException, BadBytecode {
+        MethodInfo info = method.getMethodInfo2();
+        CodeAttribute code = info.getCodeAttribute();
+        if (code == null) {
+            return 0;
+        }
+
+        ConstPool constPool = info.getConstPool();
+        String ownerClass = method.getDeclaringClass().getName();
+        int flags = 0;
+        CodeIterator it = code.iterator();
+
+        while (it.hasNext()) {
+            int pos = it.next();
+            int op = it.byteAt(pos);
+
+            if (op == Opcode.NEW) {
+                created.add(constPool.getClassInfo(it.u16bitAt(pos + 1)));
+            } else if (op == Opcode.GETFIELD) {
+                if ("target".equals(constPool.getFieldrefName(it.u16bitAt(pos + 1)))) {
+                    flags |= READS_TARGET;
+                }
+            } else if (op == Opcode.INVOKEVIRTUAL || op == Opcode.INVOKESPECIAL || op == Opcode.INVOKESTATIC) {
+                int index = it.u16bitAt(pos + 1);
+                String name = constPool.getMethodrefName(index);
+                if (ADD_BLOCK_METHOD.equals(name)) {
+                    flags |= ADDS_BLOCK;
+                } else if (depth < MAX_DEPTH && !name.startsWith("<") &&
+                    ownerClass.equals(constPool.getMethodrefClassName(index))) {
+                    // Seguir métodos auxiliares de la propia clase
+                    CtMethod helper = findMethod(method.getDeclaringClass(), name,
+                        constPool.getMethodrefType(index), stopAt);
+                    if (helper != null && helper != method) {
+                        flags |= scan(helper, stopAt, created, depth + 1);
+                    }
+                }
+            } else if (op == Opcode.INVOKEINTERFACE) {
+                if (ADD_BLOCK_METHOD.equals(constPool.getInterfaceMethodrefName(it.u16bitAt(pos + 1)))) {
+                    flags |= ADDS_BLOCK;
+                }
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Busca un método declarado en la clase o en sus superclases, sin llegar a stopAt
+     */
+    public static CtMethod findMethod(CtClass clazz, String name, String descriptor, String stopAt) throws NotFoundException {
+        CtClass current = clazz;
+        while (current != null && !current.getName().equals(stopAt)) {
+            for (CtMethod method : current.getDeclaredMethods()) {
+                if (method.getName().equals(name) && method.getMethodInfo2().getDescriptor().equals(descriptor)) {
+                    return method;
+                }
+            }
+            current = current.getSuperclass();
+        }
+        return null;
+    }
+
+    /**
+     * Nombres de las clases *Action (no internas) del jar del juego y de los mods
+     */
+    private static List<String> listActionClassNames() {
+        List<File> jars = new ArrayList<>();
+        if (Loader.STS_JAR != null) {
+            jars.add(new File(Loader.STS_JAR));
+        }
+        if (Loader.MODINFOS != null) {
+            for (ModInfo info : Loader.MODINFOS) {
+                if (info.jarURL != null) {
+                    try {
+                        jars.add(new File(info.jarURL.toURI()));
+                    } catch (Exception ignored) {}
+                }
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        for (File file : jars) {
+            try (JarFile jar = new JarFile(file)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.endsWith("Action.class") && name.indexOf('$') < 0) {
+                        names.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("No se pudo leer " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,184 @@
+package defenseshare.util;
+
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.helpers.CardLibrary;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.NotFoundException;
+import javassist.bytecode.BadBytecode;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clasifica las cartas de CardLibrary analizando el bytecode de use() con Javassist.
+ * Una carta otorga block si llama a addBlock o construye una acción de block
+ * (tabla de BlockActionAnalyzer, calculada una vez antes del análisis),
+ * directamente o a través de sus métodos auxiliares y acciones internas.
+ */
+public class BlockBytecodeClassifier {
+
+    private static final Logger logger = LogManager.getLogger(BlockBytecodeClassifier.class.getName());
+
+    private static final String ABSTRACT_CARD = "com.megacrit.cardcrawl.cards.AbstractCard";
+    private static final String USE_DESCRIPTOR =
+        "(Lcom/megacrit/cardcrawl/characters/AbstractPlayer;Lcom/megacrit/cardcrawl/monsters/AbstractMonster;)V";
+
+    // Clases de carta que no se pudieron analizar en el análisis en curso; las
+    // clases a las que hacen referencia y no se resuelven no cuentan
+    private static final AtomicInteger scanErrors = new AtomicInteger();
+
+    // Javassist no es seguro entre hilos para el mismo CtClass: un ClassPool por hilo
+    private static final ThreadLocal<ClassPool> classPools = ThreadLocal.withInitial(BlockActionAnalyzer::newClassPool);
+
+    /**
+     * Resultado de un análisis: la tabla y si se completó sin errores
+     */
+    public static final class Result {
+        private final Map<String, Boolean> verdicts;
+        private final boolean complete;
+
+        Result(Map<String, Boolean> verdicts, boolean complete) {
+            this.verdicts = verdicts;
+            this.complete = complete;
+        }
+
+        /**
+         * Tabla inmutable cardID -> otorga block
+         */
+        public Map<String, Boolean> getVerdicts() {
+            return verdicts;
+        }
+
+        /**
+         * false si alguna clase de carta falló o el análisis se interrumpió: la tabla es
+         * parcial y no debe guardarse en el índice
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /**
+     * Analiza todas las cartas registradas en CardLibrary en un ForkJoinPool.
+     * Las cartas que no se pudieron analizar no aparecen en la tabla.
+     */
+    public static Result classifyLibrary() {
+        long start = System.currentTimeMillis();
+        scanErrors.set(0);
+
+        // Copiar en el hilo principal: CardLibrary no es seguro entre hilos
+        final List<String[]> entries = new ArrayList<>(CardLibrary.cards.size());
+        for (Map.Entry<String, AbstractCard> entry : CardLibrary.cards.entrySet()) {
+            if (entry.getValue() != null) {
+                entries.add(new String[] {entry.getKey(), entry.getValue().getClass().getName()});
+            }
+        }
+
+        // La tabla de acciones se calcula antes: el veredicto de cada carta no depende del orden
+        final BlockActionAnalyzer.Table table = BlockActionAnalyzer.getTable();
+
+        final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+        final Map<String, Boolean> classVerdicts = new ConcurrentHashMap<>();
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            pool.submit(() -> entries.parallelStream().forEach(entry -> {
+                Boolean verdict = classVerdicts.get(entry[1]);
+                if (verdict == null) {
+                    verdict = classifyCardClass(entry[1], table);
+                    if (verdict != null) {
+                        classVerdicts.put(entry[1], verdict);
+                    }
+                }
+                if (verdict != null) {
+                    verdicts.put(entry[0], verdict);
+                }
+            })).get();
+        } catch (Exception e) {
+            scanErrors.incrementAndGet();
+            logger.error("Error clasificando cartas por bytecode: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+
+        int errors = scanErrors.get();
+        logger.info("Clasificadas " + verdicts.size() + "/" + entries.size() + " cartas por bytecode (" +
+            table.size() + " acciones de block) en " +
+            (System.currentTimeMillis() - start) + " ms" + (errors > 0 ? " (" + errors + " errores)" : ""));
+        return new Result(Collections.unmodifiableMap(new HashMap<>(verdicts)), errors == 0);
+    }
+
+    /**
+     * Clasifica una clase de carta; null si no se pudo analizar
+     */
+    private static Boolean classifyCardClass(String className, BlockActionAnalyzer.Table table) {
+        try {
+            ClassPool pool = classPools.get();
+            CtMethod use = BlockActionAnalyzer.findMethod(pool.get(className), "use", USE_DESCRIPTOR, ABSTRACT_CARD);
+            if (use == null) {
+                return null;
+            }
+            Set<String> created = new HashSet<>();
+            if ((BlockActionAnalyzer.scan(use, ABSTRACT_CARD, created) & BlockActionAnalyzer.ADDS_BLOCK) != 0) {
+                return true;
+            }
+            for (String action : created) {
+                if (table.grantsBlock(action)) {
+                    return true;
+                }
+            }
+            // Acciones anónimas o internas de la propia carta: no están en la tabla
+            for (String action : created) {
+                if (action.startsWith(className + "$") && isInnerBlockAction(pool, action, table)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (NotFoundException | BadBytecode | RuntimeException e) {
+            scanErrors.incrementAndGet();
+            logger.debug("No se pudo analizar " + className + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Determina si una acción interna de una carta otorga block en su update().
+     * Si no se puede resolver no otorga block: no impide guardar la clasificación.
+     */
+    private static boolean isInnerBlockAction(ClassPool pool, String className, BlockActionAnalyzer.Table table) {
+        try {
+            CtClass action = pool.get(className);
+            if (!action.subclassOf(pool.get(BlockActionAnalyzer.ABSTRACT_ACTION))) {
+                return false;
+            }
+            Set<String> created = new HashSet<>();
+            if ((BlockActionAnalyzer.analyzeAction(action, created) & BlockActionAnalyzer.ADDS_BLOCK) != 0) {
+                return true;
+            }
+            for (String other : created) {
+                if (table.grantsBlock(other)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (NotFoundException | BadBytecode | RuntimeException e) {
+            logger.debug("No se pudo analizar " + className + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
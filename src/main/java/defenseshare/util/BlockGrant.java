@@ -0,0 +1,29 @@
+package defenseshare.util;
+
+/**
+ * Block que recibe el aliado al cerrar un share.
+ *
+ * Lo acumulado en GainBlockPatch sale sobre todo de acciones construidas con
+ * card.block, calculado con los poderes del jugador local. Cada vez que la
+ * carta dio su block se concede en su lugar la proyección con los poderes del
+ * aliado (BlockProjection), la misma cifra que muestra el tip; el resto (block
+ * de reliquias o poderes durante la jugada, acciones propias de mods) se
+ * concede tal cual. Sin dependencias del juego.
+ */
+public final class BlockGrant {
+
+    private BlockGrant() {}
+
+    /**
+     * @param collected block acumulado durante el share
+     * @param cardBlock card.block al abrir el share (poderes del jugador local)
+     * @param projected block proyectado de la carta para el aliado
+     */
+    public static int toAlly(int collected, int cardBlock, int projected) {
+        if (collected <= 0 || cardBlock <= 0) {
+            return Math.max(collected, 0);
+        }
+        int times = collected / cardBlock;
+        return times * Math.max(projected, 0) + collected % cardBlock;
+    }
+}
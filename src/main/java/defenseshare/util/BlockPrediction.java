@@ -0,0 +1,92 @@
+package defenseshare.util;
+
+import com.megacrit.cardcrawl.core.AbstractCreature;
+
+import defenseshare.net.ShareNetwork;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Predicción local del block compartido mientras llega el estado real.
+ *
+ * Cada share se dibuja ya sumado al block del aliado hasta que su block
+ * sincronizado lo refleja: con transporte, conciliado además con la
+ * confirmación del destino (FRAME_APPLIED); por TiS, hasta la siguiente
+ * sincronización del aliado. Las reglas están en PredictionBuffer; si no se
+ * reflejan antes del plazo se descartan (rollback).
+ *
+ * BlockPredictionPatch suma las predicciones a currentBlock solo durante
+ * renderHealth y lo restaura después; quien lea currentBlock dentro de
+ * renderHealth (otros patches de render) ve el valor predicho.
+ * Solo desde el hilo del juego.
+ */
+public final class BlockPrediction {
+
+    private static final Logger logger = LogManager.getLogger(BlockPrediction.class.getName());
+
+    private static final int CAPACITY = 8;
+    private static final long TIMEOUT_NANOS = 3_000_000_000L;
+
+    private static final PredictionBuffer<AbstractCreature> buffer =
+        new PredictionBuffer<>(CAPACITY, TIMEOUT_NANOS, creature -> creature.currentBlock);
+
+    private BlockPrediction() {}
+
+    /**
+     * Escucha las confirmaciones de los shares enviados; llamar una vez en PostInitialize
+     */
+    public static void initialize() {
+        ShareNetwork.addListener(new ShareNetwork.Listener() {
+            @Override
+            public void onShareApplied(int target, int sequence, int appliedAmount, int blockAfter) {
+                buffer.confirm(target, sequence, appliedAmount, blockAfter);
+            }
+        });
+    }
+
+    /**
+     * Share enviado por el transporte al jugador de red target; se concilia con su confirmación
+     */
+    public static void predict(AbstractCreature ally, int target, int sequence, int amount) {
+        buffer.predict(ally, target, sequence, amount, System.nanoTime());
+    }
+
+    /**
+     * Share aplicado por TiS: se mantiene hasta la siguiente sincronización del aliado
+     */
+    public static void predictSynced(AbstractCreature ally, int amount) {
+        buffer.predict(ally, 0, PredictionBuffer.NO_SEQUENCE, amount, System.nanoTime());
+    }
+
+    /**
+     * Block predicho pendiente para la criatura (0 si no hay)
+     */
+    public static int getPendingBlock(AbstractCreature creature) {
+        return buffer.getPending(creature);
+    }
+
+    public static boolean hasPending() {
+        return buffer.hasPending();
+    }
+
+    /**
+     * Concilia con el block sincronizado y descarta las caducadas. Una vez por frame.
+     */
+    public static void update() {
+        if (!buffer.hasPending()) {
+            return;
+        }
+        int discarded = buffer.update(System.nanoTime(), creature -> creature.isDead);
+        if (discarded > 0) {
+            logger.debug(discarded + " predicciones de block descartadas sin confirmar");
+        }
+    }
+
+    /**
+     * Descarta todas las predicciones (fin de combate, nueva partida)
+     */
+    public static void reset() {
+        buffer.reset();
+    }
+}
@@ -0,0 +1,143 @@
+package defenseshare.util;
+
+import com.megacrit.cardcrawl.actions.GameActionManager;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.powers.AbstractPower;
+
+import defenseshare.patches.CardFieldsPatch;
+
+/**
+ * Block que recibiría cada aliado con una carta de defensa.
+ *
+ * card.block se calcula con los poderes del jugador local (Destreza, Frágil...);
+ * aquí se parte de baseBlock y se aplican los poderes del aliado que lo recibe.
+ * El resultado se memoriza en la propia carta para todo el roster y solo se
+ * recalcula cuando cambia la carta, algún poder (onModifyPower), el turno o el roster.
+ * GainBlockPatch concede esta misma cifra al cerrar el share (BlockGrant).
+ * Las cartas sin baseBlock (block solo con acciones propias) muestran el tip
+ * sin cifra: lo que den se concede tal cual.
+ */
+public final class BlockProjection {
+
+    private static final String TIP_LINE_SEPARATOR = " NL ";
+
+    // Se incrementa cada vez que el juego avisa de un cambio de poderes
+    private static int powerEpoch = 0;
+
+    /**
+     * Proyección memorizada de una carta para todos los aliados de un roster
+     */
+    public static final class Projection {
+        final int baseBlock;
+        final int timesUpgraded;
+        final int powerEpoch;
+        final int turn;
+        final int rosterVersion;
+        final int[] blocks;
+        String tipBody;
+
+        Projection(int baseBlock, int timesUpgraded, int powerEpoch, int turn, int rosterVersion, int[] blocks) {
+            this.baseBlock = baseBlock;
+            this.timesUpgraded = timesUpgraded;
+            this.powerEpoch = powerEpoch;
+            this.turn = turn;
+            this.rosterVersion = rosterVersion;
+            this.blocks = blocks;
+        }
+
+        boolean matches(AbstractCard card, int epoch, int currentTurn, int version) {
+            return baseBlock == card.baseBlock && timesUpgraded == card.timesUpgraded &&
+                powerEpoch == epoch && turn == currentTurn && rosterVersion == version;
+        }
+    }
+
+    private BlockProjection() {}
+
+    /**
+     * Llamado cuando cambian los poderes de cualquier criatura o empieza un combate
+     */
+    public static void onPowersChanged() {
+        powerEpoch++;
+    }
+
+    /**
+     * Block que recibiría el aliado si se le comparte la carta
+     */
+    public static int getProjectedBlock(AbstractCard card, AbstractCreature ally) {
+        if (card == null || ally == null || card.baseBlock <= 0) {
+            return 0;
+        }
+
+        RosterSnapshot<AbstractCreature> roster = AllyManager.getSnapshot();
+        for (int i = 0; i < roster.size(); i++) {
+            if (roster.get(i) == ally) {
+                return getProjection(card, roster).blocks[i];
+            }
+        }
+        // Fuera del roster (no debería pasar): sin memorizar
+        return compute(card, ally);
+    }
+
+    /**
+     * Texto del tip con el block proyectado para cada aliado; se construye una vez por proyección
+     */
+    public static String getTipBody(AbstractCard card) {
+        RosterSnapshot<AbstractCreature> roster = AllyManager.getSnapshot();
+        if (card == null || roster.isEmpty()) {
+            return null;
+        }
+
+        Projection projection = getProjection(card, roster);
+        if (projection.tipBody == null) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < roster.size(); i++) {
+                if (i > 0) {
+                    sb.append(TIP_LINE_SEPARATOR);
+                }
+                String key = SlotTargeting.getKeyLabel(i);
+                if (key != null) {
+                    sb.append('[').append(key).append("] ");
+                }
+                sb.append(roster.get(i).name);
+                if (card.baseBlock > 0) {
+                    sb.append(": #b").append(projection.blocks[i]).append(" de Bloqueo");
+                }
+            }
+            projection.tipBody = sb.toString();
+        }
+        return projection.tipBody;
+    }
+
+    private static Projection getProjection(AbstractCard card, RosterSnapshot<AbstractCreature> roster) {
+        int turn = GameActionManager.turn;
+        Projection projection = CardFieldsPatch.DefenseFields.projection.get(card);
+        if (projection != null && projection.matches(card, powerEpoch, turn, roster.getVersion())) {
+            return projection;
+        }
+
+        int[] blocks = new int[roster.size()];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = compute(card, roster.get(i));
+        }
+        projection = new Projection(card.baseBlock, card.timesUpgraded, powerEpoch, turn, roster.getVersion(), blocks);
+        CardFieldsPatch.DefenseFields.projection.set(card, projection);
+        return projection;
+    }
+
+    /**
+     * Misma cadena que AbstractCard.applyPowersToBlock, con los poderes del aliado
+     */
+    private static int compute(AbstractCard card, AbstractCreature ally) {
+        float block = card.baseBlock;
+        if (ally.powers != null) {
+            for (AbstractPower power : ally.powers) {
+                block = power.modifyBlock(block, card);
+            }
+            for (AbstractPower power : ally.powers) {
+                block = power.modifyBlockLast(block);
+            }
+        }
+        return block < 0.0f ? 0 : (int) Math.floor(block);
+    }
+}
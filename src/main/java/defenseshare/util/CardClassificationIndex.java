@@ -0,0 +1,188 @@
+package defenseshare.util;
+
+import com.evacipated.cardcrawl.modthespire.Loader;
+import com.evacipated.cardcrawl.modthespire.ModInfo;
+import com.evacipated.cardcrawl.modthespire.lib.ConfigUtils;
+
+import defenseshare.DefenseShareMod;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice binario en disco con la clasificación de cartas por bytecode.
+ * Se guarda en el directorio de SpireConfig, asociado a una huella de la lista
+ * de mods cargados; si la huella no cambia se evita volver a analizar las cartas.
+ *
+ * Formato: MAGIC(int) FORMAT(short) huella(long) n(int) y n entradas
+ * [longitud(short) cardID(UTF-8) veredicto(byte)].
+ */
+public class CardClassificationIndex {
+
+    private static final Logger logger = LogManager.getLogger(CardClassificationIndex.class.getName());
+
+    private static final int MAGIC = 0x44534349; // "DSCI"
+    private static final short FORMAT = 1;
+    private static final String FILE_NAME = "card-index.bin";
+
+    // A partir de este tamaño el fichero se mapea en memoria en lugar de leerse
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static Path getIndexPath() {
+        return Paths.get(ConfigUtils.CONFIG_DIR, DefenseShareMod.MOD_ID, FILE_NAME);
+    }
+
+    /**
+     * Huella de los mods cargados: ID, versión y tamaño/fecha de cada jar, más el jar del juego
+     */
+    public static long computeFingerprint() {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, FORMAT);
+
+        if (Loader.STS_JAR != null) {
+            hash = mixFile(hash, new File(Loader.STS_JAR));
+        }
+
+        if (Loader.MODINFOS != null) {
+            for (ModInfo info : Loader.MODINFOS) {
+                hash = mix(hash, info.ID);
+                hash = mix(hash, info.ModVersion != null ? info.ModVersion.toString() : "");
+                if (info.jarURL != null) {
+                    try {
+                        hash = mixFile(hash, new File(info.jarURL.toURI()));
+                    } catch (Exception e) {
+                        hash = mix(hash, info.jarURL.toString());
+                    }
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static long mixFile(long hash, File file) {
+        hash = mix(hash, file.getName());
+        hash = mix(hash, file.length());
+        return mix(hash, file.lastModified());
+    }
+
+    private static long mix(long hash, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return mix(hash, bytes.length);
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Carga la tabla si existe y corresponde a la huella indicada; null en otro caso
+     */
+    public static Map<String, Boolean> load(long fingerprint) {
+        Path path = getIndexPath();
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer;
+            if (size > MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                readFully(channel, buffer);
+                buffer.flip();
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT) {
+                logger.info("Índice de cartas con formato desconocido, se regenerará");
+                return null;
+            }
+            if (buffer.getLong() != fingerprint) {
+                logger.info("Lista de mods cambiada, se regenerará el índice de cartas");
+                return null;
+            }
+
+            int count = buffer.getInt();
+            Map<String, Boolean> verdicts = new HashMap<>(count * 2);
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getShort() & 0xffff;
+                if (scratch.length < length) {
+                    scratch = new byte[length];
+                }
+                buffer.get(scratch, 0, length);
+                String cardID = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                verdicts.put(cardID, buffer.get() != 0);
+            }
+
+            logger.info("Índice de cartas cargado desde disco: " + count + " cartas");
+            return Collections.unmodifiableMap(verdicts);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("No se pudo leer el índice de cartas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Guarda la tabla de forma atómica (fichero temporal + renombrado)
+     */
+    public static void save(long fingerprint, Map<String, Boolean> verdicts) {
+        Path path = getIndexPath();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(verdicts.size() * 24 + 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT);
+            out.writeLong(fingerprint);
+            out.writeInt(verdicts.size());
+            for (Map.Entry<String, Boolean> entry : verdicts.entrySet()) {
+                byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(id.length);
+                out.write(id);
+                out.writeByte(entry.getValue() ? 1 : 0);
+            }
+            out.flush();
+
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(FILE_NAME + ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar el índice de cartas: " + e.getMessage());
+        }
+    }
+}
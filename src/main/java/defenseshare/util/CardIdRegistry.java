@@ -0,0 +1,54 @@
+package defenseshare.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de IDs de carta internados como ordinales enteros densos (0, 1, 2...).
+ * Permite guardar el estado de cada carta en bitsets/arrays en lugar de sets de strings.
+ * Solo se usa desde el hilo del juego.
+ */
+public class CardIdRegistry {
+
+    public static final int UNKNOWN = -1;
+
+    private static final Map<String, Integer> ordinals = new HashMap<>();
+    private static final List<String> ids = new ArrayList<>();
+
+    /**
+     * Devuelve el ordinal del ID, asignando uno nuevo si no existía
+     */
+    public static int intern(String cardID) {
+        if (cardID == null) {
+            return UNKNOWN;
+        }
+        Integer ordinal = ordinals.get(cardID);
+        if (ordinal == null) {
+            ordinal = ids.size();
+            ids.add(cardID);
+            ordinals.put(cardID, ordinal);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Devuelve el ordinal del ID sin registrarlo, o UNKNOWN
+     */
+    public static int lookup(String cardID) {
+        if (cardID == null) {
+            return UNKNOWN;
+        }
+        Integer ordinal = ordinals.get(cardID);
+        return ordinal != null ? ordinal : UNKNOWN;
+    }
+
+    public static String getId(int ordinal) {
+        return ordinal >= 0 && ordinal < ids.size() ? ids.get(ordinal) : null;
+    }
+
+    public static int size() {
+        return ids.size();
+    }
+}
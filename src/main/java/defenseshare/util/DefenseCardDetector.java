@@ -2,10 +2,14 @@ package defenseshare.util;
 
 import com.megacrit.cardcrawl.cards.AbstractCard;
 import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.core.AbstractCreature;
 import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
 
-import java.util.HashSet;
-import java.util.Set;
+import defenseshare.patches.CardFieldsPatch;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,113 +21,240 @@ public class DefenseCardDetector {
 
     private static final Logger logger = LogManager.getLogger(DefenseCardDetector.class.getName());
 
-    // IDs de cartas conocidas que otorgan defensa
-    private static final Set<String> KNOWN_DEFENSE_CARDS = new HashSet<>();
+    // Estado por ordinal de CardIdRegistry
+    // Cartas conocidas/registradas que otorgan defensa
+    private static final BitSet defenseCards = new BitSet();
+
+    // Cartas que NO deben ser compartibles (efectos especiales)
+    private static final BitSet excludedCards = new BitSet();
+
+    // Cartas analizadas por bytecode y, de ellas, las que otorgan block
+    private static final BitSet scannedCards = new BitSet();
+    private static final BitSet scannedDefenseCards = new BitSet();
+
+    // Se incrementa al registrar/excluir cartas para invalidar los veredictos cacheados
+    private static int rulesVersion = 0;
+
+    /**
+     * Veredicto cacheado en cada instancia de carta (ver CardFieldsPatch).
+     * Solo se recalcula si cambia el ID, las mejoras o la descripción de la carta.
+     */
+    public static final class CachedVerdict {
+        private String cardID;
+        private int ordinal = CardIdRegistry.UNKNOWN;
+        private int timesUpgraded;
+        private boolean upgraded;
+        private String rawDescription;
+        private int version;
+        private boolean defense;
+
+        private boolean matches(AbstractCard card) {
+            // Comparación por referencia: la descripción solo cambia al reasignarse
+            return cardID == card.cardID &&
+                   rawDescription == card.rawDescription &&
+                   timesUpgraded == card.timesUpgraded &&
+                   upgraded == card.upgraded &&
+                   version == rulesVersion;
+        }
 
-    // IDs de cartas que NO deben ser compartibles (efectos especiales)
-    private static final Set<String> EXCLUDED_CARDS = new HashSet<>();
+        private void update(AbstractCard card) {
+            // Solo se vuelve a internar el ID si ha cambiado
+            if (cardID != card.cardID) {
+                ordinal = CardIdRegistry.intern(card.cardID);
+            }
+            cardID = card.cardID;
+            rawDescription = card.rawDescription;
+            timesUpgraded = card.timesUpgraded;
+            upgraded = card.upgraded;
+            version = rulesVersion;
+            defense = classify(card, ordinal);
+        }
+    }
 
     public static void initialize() {
         // Cartas base de defensa del juego
         initializeKnownDefenseCards();
         initializeExcludedCards();
+        // Reglas incluidas en los jars de otros mods
+        DefenseRuleLoader.loadAll();
+        rulesVersion++;
         logger.info("DefenseCardDetector inicializado");
     }
 
+    /**
+     * Clasifica todas las cartas registradas en CardLibrary analizando su bytecode.
+     * Si la lista de mods no ha cambiado se reutiliza el índice guardado en disco;
+     * un análisis con errores no se guarda y se repite en el próximo arranque.
+     * Debe llamarse cuando CardLibrary ya está cargada (receivePostInitialize).
+     */
+    public static void classifyCardLibrary() {
+        long fingerprint = CardClassificationIndex.computeFingerprint();
+        Map<String, Boolean> verdicts = CardClassificationIndex.load(fingerprint);
+        if (verdicts == null) {
+            BlockBytecodeClassifier.Result result = BlockBytecodeClassifier.classifyLibrary();
+            verdicts = result.getVerdicts();
+            if (result.isComplete()) {
+                CardClassificationIndex.save(fingerprint, verdicts);
+            } else {
+                logger.warn("Clasificación de cartas incompleta; no se guarda el índice");
+            }
+        }
+
+        scannedCards.clear();
+        scannedDefenseCards.clear();
+        for (Map.Entry<String, Boolean> entry : verdicts.entrySet()) {
+            int ordinal = CardIdRegistry.intern(entry.getKey());
+            scannedCards.set(ordinal);
+            if (entry.getValue()) {
+                scannedDefenseCards.set(ordinal);
+            }
+        }
+        rulesVersion++;
+    }
+
     private static void initializeKnownDefenseCards() {
         // === IRONCLAD ===
-        KNOWN_DEFENSE_CARDS.add("Defend_R");      // Defend
-        KNOWN_DEFENSE_CARDS.add("Shrug It Off");
-        KNOWN_DEFENSE_CARDS.add("Iron Wave");
-        KNOWN_DEFENSE_CARDS.add("Impervious");
-        KNOWN_DEFENSE_CARDS.add("Flame Barrier");
-        KNOWN_DEFENSE_CARDS.add("Entrench");
-        KNOWN_DEFENSE_CARDS.add("Ghostly Armor");
-        KNOWN_DEFENSE_CARDS.add("Metallicize");
-        KNOWN_DEFENSE_CARDS.add("Power Through");
-        KNOWN_DEFENSE_CARDS.add("Second Wind");
-        KNOWN_DEFENSE_CARDS.add("True Grit");
+        addDefense("Defend_R");      // Defend
+        addDefense("Shrug It Off");
+        addDefense("Iron Wave");
+        addDefense("Impervious");
+        addDefense("Flame Barrier");
+        addDefense("Entrench");
+        addDefense("Ghostly Armor");
+        addDefense("Metallicize");
+        addDefense("Power Through");
+        addDefense("Second Wind");
+        addDefense("True Grit");
 
         // === SILENT ===
-        KNOWN_DEFENSE_CARDS.add("Defend_G");      // Defend
-        KNOWN_DEFENSE_CARDS.add("Dodge and Roll");
-        KNOWN_DEFENSE_CARDS.add("Blur");
-        KNOWN_DEFENSE_CARDS.add("Backflip");
-        KNOWN_DEFENSE_CARDS.add("Cloak and Dagger");
-        KNOWN_DEFENSE_CARDS.add("Deflect");
-        KNOWN_DEFENSE_CARDS.add("Leg Sweep");
-        KNOWN_DEFENSE_CARDS.add("After Image");
-        KNOWN_DEFENSE_CARDS.add("Footwork");
-        KNOWN_DEFENSE_CARDS.add("Piercing Wail");
-        KNOWN_DEFENSE_CARDS.add("Escape Plan");
-        KNOWN_DEFENSE_CARDS.add("Calculated Gamble");
+        addDefense("Defend_G");      // Defend
+        addDefense("Dodge and Roll");
+        addDefense("Blur");
+        addDefense("Backflip");
+        addDefense("Cloak and Dagger");
+        addDefense("Deflect");
+        addDefense("Leg Sweep");
+        addDefense("After Image");
+        addDefense("Footwork");
+        addDefense("Piercing Wail");
+        addDefense("Escape Plan");
+        addDefense("Calculated Gamble");
 
         // === DEFECT ===
-        KNOWN_DEFENSE_CARDS.add("Defend_B");      // Defend
-        KNOWN_DEFENSE_CARDS.add("Glacier");
-        KNOWN_DEFENSE_CARDS.add("Leap");
-        KNOWN_DEFENSE_CARDS.add("Chill");
-        KNOWN_DEFENSE_CARDS.add("Coolheaded");
-        KNOWN_DEFENSE_CARDS.add("Hologram");
-        KNOWN_DEFENSE_CARDS.add("Auto-Shields");
-        KNOWN_DEFENSE_CARDS.add("Reinforced Body");
-        KNOWN_DEFENSE_CARDS.add("Equilibrium");
-        KNOWN_DEFENSE_CARDS.add("Consume");
-        KNOWN_DEFENSE_CARDS.add("Core Surge");
+        addDefense("Defend_B");      // Defend
+        addDefense("Glacier");
+        addDefense("Leap");
+        addDefense("Chill");
+        addDefense("Coolheaded");
+        addDefense("Hologram");
+        addDefense("Auto-Shields");
+        addDefense("Reinforced Body");
+        addDefense("Equilibrium");
+        addDefense("Consume");
+        addDefense("Core Surge");
 
         // === WATCHER ===
-        KNOWN_DEFENSE_CARDS.add("Defend_P");      // Defend
-        KNOWN_DEFENSE_CARDS.add("Protect");
-        KNOWN_DEFENSE_CARDS.add("Third Eye");
-        KNOWN_DEFENSE_CARDS.add("Empty Body");
-        KNOWN_DEFENSE_CARDS.add("Halt");
-        KNOWN_DEFENSE_CARDS.add("Wallop");
-        KNOWN_DEFENSE_CARDS.add("Indignation");
-        KNOWN_DEFENSE_CARDS.add("Like Water");
-        KNOWN_DEFENSE_CARDS.add("Mental Fortress");
-        KNOWN_DEFENSE_CARDS.add("Perseverance");
-        KNOWN_DEFENSE_CARDS.add("Sanctity");
-        KNOWN_DEFENSE_CARDS.add("Talk to the Hand");
-        KNOWN_DEFENSE_CARDS.add("Wave of the Hand");
-        KNOWN_DEFENSE_CARDS.add("Spirit Shield");
+        addDefense("Defend_P");      // Defend
+        addDefense("Protect");
+        addDefense("Third Eye");
+        addDefense("Empty Body");
+        addDefense("Halt");
+        addDefense("Wallop");
+        addDefense("Indignation");
+        addDefense("Like Water");
+        addDefense("Mental Fortress");
+        addDefense("Perseverance");
+        addDefense("Sanctity");
+        addDefense("Talk to the Hand");
+        addDefense("Wave of the Hand");
+        addDefense("Spirit Shield");
 
         // === COLORLESS ===
-        KNOWN_DEFENSE_CARDS.add("Defend_C");
-        KNOWN_DEFENSE_CARDS.add("Panacea");
+        addDefense("Defend_C");
+        addDefense("Panacea");
+    }
+
+    /**
+     * Devuelve false si el ID es null (se ignora)
+     */
+    private static boolean addDefense(String cardID) {
+        if (cardID == null) {
+            logger.warn("Se ignora una carta de defensa con ID null");
+            return false;
+        }
+        defenseCards.set(CardIdRegistry.intern(cardID));
+        return true;
+    }
+
+    /**
+     * Devuelve false si el ID es null (se ignora)
+     */
+    private static boolean addExcluded(String cardID) {
+        if (cardID == null) {
+            logger.warn("Se ignora una carta excluida con ID null");
+            return false;
+        }
+        excludedCards.set(CardIdRegistry.intern(cardID));
+        return true;
     }
 
     private static void initializeExcludedCards() {
         // Cartas que no deberían poder compartirse por efectos secundarios
-        EXCLUDED_CARDS.add("Barricade");     // Efecto permanente sobre uno mismo
-        EXCLUDED_CARDS.add("Entrench");      // Duplica bloqueo existente
-        EXCLUDED_CARDS.add("Body Slam");     // Hace daño basado en bloqueo propio
+        addExcluded("Barricade");     // Efecto permanente sobre uno mismo
+        addExcluded("Entrench");      // Duplica bloqueo existente
+        addExcluded("Body Slam");     // Hace daño basado en bloqueo propio
     }
 
     /**
-     * Determina si una carta otorga defensa y puede ser compartida
+     * Determina si una carta otorga defensa y puede ser compartida.
+     * Se llama por carta en cada frame, así que usa el veredicto cacheado en la instancia.
      */
     public static boolean isDefenseCard(AbstractCard card) {
         if (card == null) {
             return false;
         }
 
-        // Verificar si está en la lista de exclusión
-        if (EXCLUDED_CARDS.contains(card.cardID)) {
-            return false;
+        CachedVerdict cached = CardFieldsPatch.DefenseFields.verdict.get(card);
+        if (cached == null) {
+            cached = new CachedVerdict();
+            CardFieldsPatch.DefenseFields.verdict.set(card, cached);
+        } else if (cached.matches(card)) {
+            return cached.defense;
         }
 
-        // Verificar si está en la lista conocida de cartas de defensa
-        if (KNOWN_DEFENSE_CARDS.contains(card.cardID)) {
-            return true;
+        cached.update(card);
+        return cached.defense;
+    }
+
+    /**
+     * Clasificación completa de la carta (sin cache)
+     */
+    private static boolean classify(AbstractCard card, int ordinal) {
+        if (ordinal != CardIdRegistry.UNKNOWN) {
+            // Verificar si está en la lista de exclusión
+            if (excludedCards.get(ordinal)) {
+                return false;
+            }
+
+            // Verificar si está en la lista conocida de cartas de defensa
+            if (defenseCards.get(ordinal)) {
+                return true;
+            }
+
+            // Veredicto por bytecode para cartas de CardLibrary
+            if (scannedCards.get(ordinal)) {
+                return scannedDefenseCards.get(ordinal);
+            }
         }
 
+        // Cartas no analizadas (generadas, etc.): heurística
         // Detección dinámica: verificar si la carta tiene baseBlock > 0
         if (card.baseBlock > 0) {
             return true;
         }
 
         // Verificar si el tipo de carta es SKILL y tiene la palabra "Block" o "Defend"
-        if (card.type == AbstractCard.CardType.SKILL) {
+        if (card.type == AbstractCard.CardType.SKILL && card.rawDescription != null) {
             String description = card.rawDescription.toLowerCase();
             if (description.contains("block") || description.contains("defend")) {
                 return true;
@@ -154,6 +285,13 @@ public class DefenseCardDetector {
         return 0;
     }
 
+    /**
+     * Block que recibiría el aliado, con sus propios poderes en lugar de los del jugador
+     */
+    public static int calculateBlockAmount(AbstractCard card, AbstractCreature ally) {
+        return BlockProjection.getProjectedBlock(card, ally);
+    }
+
     /**
      * Verifica si una carta puede ser potencialmente compartida
      * Esto es útil para mostrar indicadores visuales antes de jugar la carta
@@ -172,15 +310,54 @@ public class DefenseCardDetector {
      * Útil para mods que añaden nuevas cartas
      */
     public static void registerDefenseCard(String cardID) {
-        KNOWN_DEFENSE_CARDS.add(cardID);
-        logger.info("Carta de defensa registrada: " + cardID);
+        if (addDefense(cardID)) {
+            rulesVersion++;
+            logger.debug("Carta de defensa registrada: " + cardID);
+        }
+    }
+
+    /**
+     * Registra varias cartas de defensa de una vez (mods con muchas cartas)
+     */
+    public static void registerDefenseCards(Collection<String> cardIDs) {
+        int added = 0;
+        try {
+            for (String cardID : cardIDs) {
+                if (addDefense(cardID)) {
+                    added++;
+                }
+            }
+        } finally {
+            // Las ya añadidas cuentan aunque la colección falle a mitad
+            rulesVersion++;
+        }
+        logger.debug("Cartas de defensa registradas: " + added);
     }
 
     /**
      * Excluye una carta de poder ser compartida
      */
     public static void excludeCard(String cardID) {
-        EXCLUDED_CARDS.add(cardID);
-        logger.info("Carta excluida de compartir: " + cardID);
+        if (addExcluded(cardID)) {
+            rulesVersion++;
+            logger.debug("Carta excluida de compartir: " + cardID);
+        }
+    }
+
+    /**
+     * Excluye varias cartas de una vez
+     */
+    public static void excludeCards(Collection<String> cardIDs) {
+        int added = 0;
+        try {
+            for (String cardID : cardIDs) {
+                if (addExcluded(cardID)) {
+                    added++;
+                }
+            }
+        } finally {
+            rulesVersion++;
+        }
+        logger.debug("Cartas excluidas de compartir: " + added);
     }
 }
@@ -0,0 +1,85 @@
+package defenseshare.util;
+
+import com.evacipated.cardcrawl.modthespire.Loader;
+import com.evacipated.cardcrawl.modthespire.ModInfo;
+import com.google.gson.Gson;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Carga reglas de cartas de defensa incluidas en los jars de otros mods.
+ *
+ * Un mod puede incluir en la raíz de su jar un fichero DefenseShareRules.json:
+ * <pre>
+ * {
+ *   "defense":  ["MiMod:Escudo", "MiMod:Muralla"],
+ *   "excluded": ["MiMod:Sacrificio"]
+ * }
+ * </pre>
+ */
+public class DefenseRuleLoader {
+
+    private static final Logger logger = LogManager.getLogger(DefenseRuleLoader.class.getName());
+
+    public static final String RULES_FILE = "DefenseShareRules.json";
+
+    /**
+     * Estructura del fichero JSON (rellenada por Gson)
+     */
+    private static class RuleFile {
+        List<String> defense;
+        List<String> excluded;
+    }
+
+    /**
+     * Busca DefenseShareRules.json en los jars de todos los mods cargados y los aplica
+     */
+    public static void loadAll() {
+        if (Loader.MODINFOS == null) {
+            return;
+        }
+
+        Gson gson = new Gson();
+        for (ModInfo info : Loader.MODINFOS) {
+            if (info.jarURL == null) {
+                continue;
+            }
+
+            try (JarFile jar = new JarFile(new File(info.jarURL.toURI()))) {
+                ZipEntry entry = jar.getEntry(RULES_FILE);
+                if (entry == null) {
+                    continue;
+                }
+
+                RuleFile rules;
+                try (Reader reader = new InputStreamReader(jar.getInputStream(entry), StandardCharsets.UTF_8)) {
+                    rules = gson.fromJson(reader, RuleFile.class);
+                }
+                if (rules == null) {
+                    continue;
+                }
+
+                if (rules.defense != null) {
+                    DefenseCardDetector.registerDefenseCards(rules.defense);
+                }
+                if (rules.excluded != null) {
+                    DefenseCardDetector.excludeCards(rules.excluded);
+                }
+                logger.info("Reglas de " + info.ID + ": " +
+                    (rules.defense != null ? rules.defense.size() : 0) + " defensa, " +
+                    (rules.excluded != null ? rules.excluded.size() : 0) + " excluidas");
+            } catch (Exception e) {
+                logger.warn("No se pudieron leer las reglas de " + info.ID + ": " + e.getMessage());
+            }
+        }
+    }
+}
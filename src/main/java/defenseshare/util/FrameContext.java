@@ -0,0 +1,94 @@
+package defenseshare.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.rooms.AbstractRoom;
+
+import defenseshare.DefenseShareMod;
+
+/**
+ * Estado global del frame, calculado una sola vez al inicio de cada update
+ * (receivePreUpdate) y leído por todos los patches de update/render.
+ * Es inmutable: todas las cartas ven los mismos valores durante el frame.
+ */
+public final class FrameContext {
+
+    private static final FrameContext INACTIVE = new FrameContext(false, false, false, false, false);
+
+    private static FrameContext current = INACTIVE;
+
+    private final boolean tisLoaded;
+    private final boolean handAvailable;
+    private final boolean inCombat;
+    private final boolean alliesAvailable;
+    private final boolean allyModeActive;
+
+    private FrameContext(boolean tisLoaded, boolean handAvailable, boolean inCombat,
+                         boolean alliesAvailable, boolean allyModeActive) {
+        this.tisLoaded = tisLoaded;
+        this.handAvailable = handAvailable;
+        this.inCombat = inCombat;
+        this.alliesAvailable = alliesAvailable;
+        this.allyModeActive = allyModeActive;
+    }
+
+    /**
+     * Captura el estado del frame actual. Llamar una vez por frame, antes de los updates.
+     */
+    public static void capture() {
+        if (!DefenseShareMod.isTogetherInSpireLoaded()) {
+            current = INACTIVE;
+            return;
+        }
+
+        boolean handAvailable = AbstractDungeon.player != null && AbstractDungeon.player.hand != null;
+
+        AbstractRoom room = AbstractDungeon.currMapNode != null ? AbstractDungeon.getCurrRoom() : null;
+        boolean inCombat = handAvailable && room != null && room.phase == AbstractRoom.RoomPhase.COMBAT;
+
+        boolean alliesAvailable = handAvailable && AllyManager.hasAlliesAvailable();
+
+        boolean allyModeActive = Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT) ||
+                                 Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT);
+
+        current = new FrameContext(true, handAvailable, inCombat, alliesAvailable, allyModeActive);
+    }
+
+    public static FrameContext current() {
+        return current;
+    }
+
+    public boolean isTisLoaded() {
+        return tisLoaded;
+    }
+
+    /**
+     * Hay jugador con mano (en partida)
+     */
+    public boolean isHandAvailable() {
+        return handAvailable;
+    }
+
+    public boolean isInCombat() {
+        return inCombat;
+    }
+
+    public boolean isAlliesAvailable() {
+        return alliesAvailable;
+    }
+
+    /**
+     * Tecla de modo aliado (Shift) presionada en este frame
+     */
+    public boolean isAllyModeActive() {
+        return allyModeActive;
+    }
+
+    /**
+     * En combate y con aliados a los que compartir
+     */
+    public boolean isSharingAvailable() {
+        return inCombat && alliesAvailable;
+    }
+}
@@ -0,0 +1,126 @@
+package defenseshare.util;
+
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import defenseshare.patches.CardFieldsPatch;
+
+/**
+ * Índice de la mano del jugador para consultas O(1) desde los patches.
+ *
+ * Cada carta de la mano guarda (en un SpireField) el token de la última
+ * reconstrucción; una carta está en la mano si su token es el actual.
+ * El índice se marca como sucio desde los hooks de CardGroup y se reconstruye
+ * de forma perezosa en la siguiente consulta.
+ */
+public class HandIndex {
+
+    // Token de la reconstrucción actual (comparación por identidad)
+    private static Object token = new Object();
+
+    // Se incrementa en cada reconstrucción o vaciado del índice
+    private static int version = 0;
+
+    private static CardGroup indexedHand = null;
+    private static int indexedSize = -1;
+    private static boolean dirty = true;
+
+    // Contadores en vivo sobre las cartas de la mano
+    private static int shareableCount = 0;
+    private static int glowingDefenseCount = 0;
+
+    /**
+     * Marca el índice para reconstruir en la próxima consulta
+     */
+    public static void markDirty() {
+        dirty = true;
+    }
+
+    private static boolean ensureFresh() {
+        AbstractPlayer player = AbstractDungeon.player;
+        if (player == null || player.hand == null) {
+            if (indexedHand != null) {
+                clear();
+            }
+            return false;
+        }
+
+        // El tamaño cubre cambios hechos directamente sobre hand.group
+        if (dirty || player.hand != indexedHand || player.hand.group.size() != indexedSize) {
+            rebuild(player.hand);
+        }
+        return true;
+    }
+
+    private static void rebuild(CardGroup hand) {
+        token = new Object();
+        version++;
+        shareableCount = 0;
+        glowingDefenseCount = 0;
+
+        for (AbstractCard card : hand.group) {
+            CardFieldsPatch.DefenseFields.handToken.set(card, token);
+            if (DefenseCardDetector.isDefenseCard(card)) {
+                shareableCount++;
+                if (card.isGlowing) {
+                    glowingDefenseCount++;
+                }
+            }
+        }
+
+        indexedHand = hand;
+        indexedSize = hand.group.size();
+        dirty = false;
+    }
+
+    private static void clear() {
+        token = new Object();
+        version++;
+        indexedHand = null;
+        indexedSize = -1;
+        shareableCount = 0;
+        glowingDefenseCount = 0;
+        dirty = true;
+    }
+
+    /**
+     * Indica si la carta está en la mano del jugador
+     */
+    public static boolean contains(AbstractCard card) {
+        return card != null && ensureFresh() && CardFieldsPatch.DefenseFields.handToken.get(card) == token;
+    }
+
+    /**
+     * Versión del índice; cambia cada vez que cambia la mano
+     */
+    public static int getVersion() {
+        ensureFresh();
+        return version;
+    }
+
+    /**
+     * Número de cartas de defensa en la mano
+     */
+    public static int getShareableCount() {
+        return ensureFresh() ? shareableCount : 0;
+    }
+
+    /**
+     * Indica si alguna carta de defensa de la mano está brillando (jugable)
+     */
+    public static boolean hasGlowingDefenseCard() {
+        return ensureFresh() && glowingDefenseCount > 0;
+    }
+
+    /**
+     * Llamado antes de que una carta cambie su estado de brillo
+     */
+    public static void onGlowChanging(AbstractCard card, boolean glowing) {
+        if (card.isGlowing == glowing || !contains(card) || !DefenseCardDetector.isDefenseCard(card)) {
+            return;
+        }
+        glowingDefenseCount += glowing ? 1 : -1;
+    }
+}
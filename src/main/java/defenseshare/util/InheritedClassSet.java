@@ -0,0 +1,58 @@
+package defenseshare.util;
+
+import java.util.Set;
+
+/**
+ * Pertenencia de clases a un conjunto de nombres, resuelta una vez por clase
+ * con ClassValue. Una subclase que no redefine el método analizado hereda el
+ * veredicto de su superclase; si lo redefine, solo cuenta si está en el conjunto.
+ * Sin dependencias del juego; seguro entre hilos.
+ */
+public final class InheritedClassSet {
+
+    private final Set<String> names;
+    private final String methodName;
+
+    private final ClassValue<Boolean> membership = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (names.contains(type.getName())) {
+                return Boolean.TRUE;
+            }
+            Class<?> parent = type.getSuperclass();
+            if (parent == null || declaresMethod(type)) {
+                return Boolean.FALSE;
+            }
+            return get(parent);
+        }
+    };
+
+    /**
+     * @param names nombres de clase que pertenecen al conjunto
+     * @param methodName método sin parámetros del que depende el veredicto
+     */
+    public InheritedClassSet(Set<String> names, String methodName) {
+        this.names = names;
+        this.methodName = methodName;
+    }
+
+    public boolean contains(Class<?> type) {
+        return membership.get(type);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private boolean declaresMethod(Class<?> type) {
+        try {
+            type.getDeclaredMethod(methodName);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        } catch (LinkageError | SecurityException e) {
+            // No se puede inspeccionar: no se hereda
+            return true;
+        }
+    }
+}
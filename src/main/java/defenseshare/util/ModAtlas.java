@@ -0,0 +1,126 @@
+package defenseshare.util;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * Atlas del mod generado por código en un único Pixmap/Texture:
+ * halo de aliado, anillo de selección y badge del mod.
+ *
+ * No lee ficheros del disco y se crea una sola vez (la primera vez que se
+ * pide, siempre desde el hilo de render). Todo lo que se dibuja con él
+ * comparte textura y cabe en un solo lote del SpriteBatch.
+ */
+public final class ModAtlas {
+
+    private static final int ATLAS_WIDTH = 256;
+    private static final int ATLAS_HEIGHT = 128;
+
+    // Regiones: halo (0,0), anillo (128,0), badge (0,64)
+    private static final int ELLIPSE_WIDTH = 128;
+    private static final int ELLIPSE_HEIGHT = 64;
+    private static final int BADGE_SIZE = 64;
+
+    private static Texture texture = null;
+    private static TextureRegion overlay = null;
+    private static TextureRegion selected = null;
+    private static TextureRegion badge = null;
+
+    private ModAtlas() {}
+
+    /**
+     * Halo suave bajo un aliado compartible
+     */
+    public static TextureRegion getOverlay() {
+        ensureLoaded();
+        return overlay;
+    }
+
+    /**
+     * Anillo del aliado bajo el cursor o seleccionado
+     */
+    public static TextureRegion getSelected() {
+        ensureLoaded();
+        return selected;
+    }
+
+    /**
+     * Badge del mod (panel de configuración)
+     */
+    public static TextureRegion getBadge() {
+        ensureLoaded();
+        return badge;
+    }
+
+    private static void ensureLoaded() {
+        if (texture != null) {
+            return;
+        }
+
+        Pixmap pixmap = new Pixmap(ATLAS_WIDTH, ATLAS_HEIGHT, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        pixmap.setColor(0.0f, 0.0f, 0.0f, 0.0f);
+        pixmap.fill();
+
+        drawEllipse(pixmap, 0, 0, false);
+        drawEllipse(pixmap, ELLIPSE_WIDTH, 0, true);
+        drawBadge(pixmap, 0, ELLIPSE_HEIGHT);
+
+        texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        pixmap.dispose();
+
+        overlay = new TextureRegion(texture, 0, 0, ELLIPSE_WIDTH, ELLIPSE_HEIGHT);
+        selected = new TextureRegion(texture, ELLIPSE_WIDTH, 0, ELLIPSE_WIDTH, ELLIPSE_HEIGHT);
+        badge = new TextureRegion(texture, 0, ELLIPSE_HEIGHT, BADGE_SIZE, BADGE_SIZE);
+    }
+
+    /**
+     * Elipse blanca (se tiñe al dibujar): rellena con borde difuminado, o solo el anillo exterior
+     */
+    private static void drawEllipse(Pixmap pixmap, int originX, int originY, boolean ring) {
+        float radiusX = ELLIPSE_WIDTH / 2.0f;
+        float radiusY = ELLIPSE_HEIGHT / 2.0f;
+        for (int y = 0; y < ELLIPSE_HEIGHT; y++) {
+            for (int x = 0; x < ELLIPSE_WIDTH; x++) {
+                float dx = (x + 0.5f - radiusX) / radiusX;
+                float dy = (y + 0.5f - radiusY) / radiusY;
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                if (distance > 1.0f) {
+                    continue;
+                }
+
+                float alpha;
+                if (ring) {
+                    // Anillo entre 0.75 y 1.0 con picos suaves
+                    alpha = distance < 0.75f ? 0.0f : 1.0f - Math.abs(distance - 0.875f) / 0.125f;
+                } else {
+                    alpha = 1.0f - distance * distance;
+                }
+                if (alpha > 0.0f) {
+                    pixmap.setColor(1.0f, 1.0f, 1.0f, alpha);
+                    pixmap.drawPixel(originX + x, originY + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Escudo azul con borde claro
+     */
+    private static void drawBadge(Pixmap pixmap, int originX, int originY) {
+        int center = originX + BADGE_SIZE / 2;
+        int top = originY + 6;
+        int waist = originY + 34;
+        int bottom = originY + BADGE_SIZE - 4;
+
+        pixmap.setColor(0.85f, 0.92f, 1.0f, 1.0f);
+        pixmap.fillRectangle(originX + 6, top, BADGE_SIZE - 12, waist - top);
+        pixmap.fillTriangle(originX + 6, waist, originX + BADGE_SIZE - 6, waist, center, bottom);
+
+        pixmap.setColor(0.2f, 0.5f, 0.9f, 1.0f);
+        pixmap.fillRectangle(originX + 10, top + 4, BADGE_SIZE - 20, waist - top - 4);
+        pixmap.fillTriangle(originX + 10, waist, originX + BADGE_SIZE - 10, waist, center, bottom - 6);
+    }
+}
@@ -0,0 +1,189 @@
+package defenseshare.util;
+
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Búfer acotado de predicciones de block compartido, conciliadas con el block
+ * sincronizado de cada criatura.
+ *
+ * Hay dos canales independientes: la confirmación del share (FRAME_APPLIED,
+ * solo con transporte) y la sincronización de la criatura (TiS). Una
+ * predicción nunca se suma a un block sincronizado que ya la incluye:
+ * <ul>
+ * <li>Antes de la confirmación se muestra la cantidad menos lo que el block
+ * sincronizado haya subido desde el share. Si sube por otra fuente se muestra
+ * de menos durante un momento, nunca el doble.</li>
+ * <li>La confirmación trae el block del destino tras aplicarlo: queda pendiente
+ * lo que aún no refleja el block sincronizado, como mucho lo aplicado.</li>
+ * <li>Confirmada, o sin transporte (sin secuencia), se retira en cuanto cambia
+ * el block sincronizado: esa sincronización ya trae el share.</li>
+ * </ul>
+ * Si nada de eso llega antes del plazo se descarta (rollback).
+ * Sin dependencias del juego; solo desde el hilo del juego.
+ *
+ * @param <C> criatura
+ */
+public final class PredictionBuffer<C> {
+
+    /**
+     * Secuencia de un share sin transporte: no habrá confirmación
+     */
+    public static final int NO_SEQUENCE = -1;
+
+    private final int capacity;
+    private final long timeoutNanos;
+    private final ToIntFunction<C> syncedBlock;
+
+    // Predicciones en orden de llegada
+    private final Object[] creatures;
+    private final int[] targets;
+    private final int[] sequences;
+    private final int[] amounts;
+    private final int[] baselines;
+    private final boolean[] awaitingSync;
+    private final long[] deadlines;
+    private int size = 0;
+
+    /**
+     * @param syncedBlock block sincronizado actual de la criatura
+     */
+    public PredictionBuffer(int capacity, long timeoutNanos, ToIntFunction<C> syncedBlock) {
+        this.capacity = capacity;
+        this.timeoutNanos = timeoutNanos;
+        this.syncedBlock = syncedBlock;
+        creatures = new Object[capacity];
+        targets = new int[capacity];
+        sequences = new int[capacity];
+        amounts = new int[capacity];
+        baselines = new int[capacity];
+        awaitingSync = new boolean[capacity];
+        deadlines = new long[capacity];
+    }
+
+    /**
+     * Registra un share enviado. Con el búfer lleno se descarta la predicción más antigua.
+     *
+     * @param sequence secuencia del ShareEvent, o NO_SEQUENCE si no habrá confirmación
+     */
+    public void predict(C creature, int target, int sequence, int amount, long now) {
+        if (creature == null || amount <= 0) {
+            return;
+        }
+        if (size == capacity) {
+            removeAt(0);
+        }
+        creatures[size] = creature;
+        targets[size] = target;
+        sequences[size] = sequence;
+        amounts[size] = amount;
+        baselines[size] = syncedBlock.applyAsInt(creature);
+        awaitingSync[size] = sequence == NO_SEQUENCE;
+        deadlines[size] = now + timeoutNanos;
+        size++;
+    }
+
+    /**
+     * El destino aplicó el share y quedó con blockAfter de block
+     *
+     * @return false si no había predicción para ese share
+     */
+    public boolean confirm(int target, int sequence, int appliedAmount, int blockAfter) {
+        for (int i = 0; i < size; i++) {
+            if (targets[i] == target && sequences[i] == sequence && !awaitingSync[i]) {
+                @SuppressWarnings("unchecked")
+                int synced = syncedBlock.applyAsInt((C) creatures[i]);
+                int pending = Math.min(appliedAmount, blockAfter - synced);
+                if (pending <= 0) {
+                    // La sincronización llegó antes que la confirmación
+                    removeAt(i);
+                } else {
+                    amounts[i] = pending;
+                    baselines[i] = synced;
+                    awaitingSync[i] = true;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Block predicho que falta por reflejar en el block sincronizado de la criatura
+     */
+    public int getPending(C creature) {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            if (creatures[i] == creature) {
+                total += pendingAt(i, syncedBlock.applyAsInt(creature));
+            }
+        }
+        return total;
+    }
+
+    private int pendingAt(int i, int synced) {
+        if (awaitingSync[i]) {
+            return synced == baselines[i] ? amounts[i] : 0;
+        }
+        return Math.max(0, amounts[i] - Math.max(0, synced - baselines[i]));
+    }
+
+    public boolean hasPending() {
+        return size > 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retira las ya reflejadas en el block sincronizado, las caducadas y las de
+     * criaturas que ya no cuentan. Una vez por frame.
+     *
+     * @return número de predicciones descartadas sin llegar a reflejarse
+     */
+    @SuppressWarnings("unchecked")
+    public int update(long now, Predicate<C> gone) {
+        int discarded = 0;
+        int i = 0;
+        while (i < size) {
+            C creature = (C) creatures[i];
+            if (awaitingSync[i] && syncedBlock.applyAsInt(creature) != baselines[i]) {
+                removeAt(i);
+                continue;
+            }
+            if (now - deadlines[i] > 0 || gone.test(creature)) {
+                discarded++;
+                removeAt(i);
+                continue;
+            }
+            i++;
+        }
+        return discarded;
+    }
+
+    private void removeAt(int position) {
+        // Desplaza hacia delante las posteriores para conservar el orden
+        for (int i = position; i < size - 1; i++) {
+            creatures[i] = creatures[i + 1];
+            targets[i] = targets[i + 1];
+            sequences[i] = sequences[i + 1];
+            amounts[i] = amounts[i + 1];
+            baselines[i] = baselines[i + 1];
+            awaitingSync[i] = awaitingSync[i + 1];
+            deadlines[i] = deadlines[i + 1];
+        }
+        creatures[size - 1] = null;
+        size--;
+    }
+
+    /**
+     * Descarta todas las predicciones (fin de combate, nueva partida)
+     */
+    public void reset() {
+        for (int i = 0; i < capacity; i++) {
+            creatures[i] = null;
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,77 @@
+package defenseshare.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Lote de cartas con el target cambiado por CardTargetingPatch.
+ *
+ * El target original se guarda en la propia carta (un SpireField en el juego)
+ * y el lote solo recuerda qué cartas cambió. Al restaurar se devuelve el
+ * target, se borra el guardado y se olvida la carta: después de cada lote o
+ * combate no queda ninguna referencia a cartas ni a targets.
+ * Sin dependencias del juego; solo desde el hilo del juego.
+ *
+ * @param <C> carta
+ * @param <T> target
+ */
+public final class RetargetBatch<C, T> {
+
+    private final Function<C, T> getTarget;
+    private final BiConsumer<C, T> setTarget;
+    private final Function<C, T> getOriginal;
+    private final BiConsumer<C, T> setOriginal;
+
+    // Como mucho contiene la mano actual
+    private final List<C> retargeted = new ArrayList<>();
+
+    /**
+     * @param getTarget   target actual de la carta
+     * @param setTarget   cambia el target de la carta
+     * @param getOriginal target original guardado en la carta, o null
+     * @param setOriginal guarda (o borra con null) el target original
+     */
+    public RetargetBatch(Function<C, T> getTarget, BiConsumer<C, T> setTarget,
+                         Function<C, T> getOriginal, BiConsumer<C, T> setOriginal) {
+        this.getTarget = getTarget;
+        this.setTarget = setTarget;
+        this.getOriginal = getOriginal;
+        this.setOriginal = setOriginal;
+    }
+
+    /**
+     * Cambia el target de la carta guardando el original
+     */
+    public void retarget(C card, T target) {
+        setOriginal.accept(card, getTarget.apply(card));
+        setTarget.accept(card, target);
+        retargeted.add(card);
+    }
+
+    /**
+     * Devuelve a la carta su target original, si lo tenía cambiado
+     */
+    public void restore(C card) {
+        T original = getOriginal.apply(card);
+        if (original != null) {
+            setTarget.accept(card, original);
+            setOriginal.accept(card, null);
+        }
+    }
+
+    /**
+     * Restaura todas las cartas del lote (incluidas las que ya no están en la mano) y las olvida
+     */
+    public void restoreAll() {
+        for (int i = 0; i < retargeted.size(); i++) {
+            restore(retargeted.get(i));
+        }
+        retargeted.clear();
+    }
+
+    public int size() {
+        return retargeted.size();
+    }
+}
@@ -0,0 +1,91 @@
+package defenseshare.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Publicación del roster de AllyManager: un único escritor reconstruye y
+ * publica fotos inmutables; cualquier hilo lee la actual o marca el roster
+ * como sucio.
+ *
+ * El flag se limpia antes de leer la fuente, así que una invalidación durante
+ * la reconstrucción nunca se pierde: fuerza otra pasada. Sin dependencias del juego.
+ */
+final class RosterPublisher<T> {
+
+    private final AtomicReference<RosterSnapshot<T>> snapshot = new AtomicReference<>(RosterSnapshot.<T>empty());
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    // Solo del escritor: lista de trabajo reutilizada
+    private final List<T> scratch = new ArrayList<>();
+
+    /**
+     * Foto actual; nunca null, sin bloqueo ni copia
+     */
+    RosterSnapshot<T> get() {
+        return snapshot.get();
+    }
+
+    /**
+     * Marca el roster para reconstruir; desde cualquier hilo
+     */
+    void invalidate() {
+        dirty.set(true);
+    }
+
+    boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Reconstruye con los aliados que añade source y publica una foto nueva
+     * si la lista cambió. Solo desde el escritor.
+     *
+     * @return true si se publicó una foto nueva
+     */
+    boolean rebuild(Consumer<List<T>> source) {
+        dirty.set(false);
+        scratch.clear();
+        source.accept(scratch);
+        stabilizeOrder();
+        return publish();
+    }
+
+    /**
+     * Mantiene el orden del roster anterior (los slots de SlotTargeting) y añade
+     * los aliados nuevos al final. Los que se van desaparecen sin reordenar al resto.
+     */
+    private void stabilizeOrder() {
+        RosterSnapshot<T> current = snapshot.get();
+        if (current.isEmpty() || scratch.size() < 2) {
+            return;
+        }
+
+        List<T> ordered = new ArrayList<>(scratch.size());
+        for (int i = 0; i < current.size(); i++) {
+            T ally = current.get(i);
+            if (scratch.contains(ally)) {
+                ordered.add(ally);
+            }
+        }
+        for (T ally : scratch) {
+            if (!ordered.contains(ally)) {
+                ordered.add(ally);
+            }
+        }
+        scratch.clear();
+        scratch.addAll(ordered);
+    }
+
+    private boolean publish() {
+        RosterSnapshot<T> current = snapshot.get();
+        if (current.sameAllies(scratch)) {
+            return false;
+        }
+        snapshot.set(new RosterSnapshot<>(scratch.toArray(), current.getVersion() + 1));
+        return true;
+    }
+}
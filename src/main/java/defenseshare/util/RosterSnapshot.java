@@ -0,0 +1,92 @@
+package defenseshare.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Foto inmutable del roster de aliados.
+ *
+ * RosterPublisher publica una nueva instancia cada vez que cambia el roster;
+ * los lectores (render, patches, hilos de red) la leen sin bloqueo y sin
+ * copiar, y nunca ven una lista a medio reconstruir. Sin dependencias del
+ * juego: AllyManager la usa con AbstractCreature.
+ */
+public final class RosterSnapshot<T> {
+
+    private static final RosterSnapshot<?> EMPTY = new RosterSnapshot<>(new Object[0], 0);
+
+    private final Object[] allies;
+    private final List<T> view;
+    private final int version;
+
+    @SuppressWarnings("unchecked")
+    RosterSnapshot(Object[] allies, int version) {
+        this.allies = allies;
+        this.view = Collections.unmodifiableList((List<T>) Arrays.asList(allies));
+        this.version = version;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> RosterSnapshot<T> empty() {
+        return (RosterSnapshot<T>) EMPTY;
+    }
+
+    public int size() {
+        return allies.length;
+    }
+
+    public boolean isEmpty() {
+        return allies.length == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) allies[index];
+    }
+
+    public boolean contains(T ally) {
+        return indexOf(ally) >= 0;
+    }
+
+    /**
+     * Slot del aliado en el roster, o -1
+     */
+    public int indexOf(T ally) {
+        for (int i = 0; i < allies.length; i++) {
+            if (allies[i] == ally) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Vista de solo lectura, sin copia
+     */
+    public List<T> asList() {
+        return view;
+    }
+
+    /**
+     * Versión del roster; cambia solo cuando cambia la lista de aliados
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Indica si la lista coincide (por identidad y orden) con la de esta foto
+     */
+    boolean sameAllies(List<T> other) {
+        if (other.size() != allies.length) {
+            return false;
+        }
+        for (int i = 0; i < allies.length; i++) {
+            if (allies[i] != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package defenseshare.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardQueueItem;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+
+/**
+ * Compartir con teclado: con una carta de defensa seleccionada, F1..F8 la
+ * juega directamente sobre el aliado de ese slot, sin arrastrar la mira ni
+ * mantener SHIFT. El slot es la posición en el roster publicado, cuyo orden
+ * se mantiene estable entre reconstrucciones (ver AllyManager).
+ */
+public final class SlotTargeting {
+
+    public static final int MAX_SLOTS = 8;
+
+    // Carta encolada por teclado; UseCardPatch la acepta sin modo aliado
+    private static AbstractCard pendingCard = null;
+
+    private SlotTargeting() {}
+
+    /**
+     * Slot de la tecla pulsada en este frame (F1 = 0), o -1
+     */
+    private static int getPressedSlot() {
+        for (int i = 0; i < MAX_SLOTS; i++) {
+            // Las teclas F1..F12 de libGDX son consecutivas
+            if (Gdx.input.isKeyJustPressed(Input.Keys.F1 + i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Nombre de la tecla de un slot, para tips e indicadores
+     */
+    public static String getKeyLabel(int slot) {
+        return slot >= 0 && slot < MAX_SLOTS ? "F" + (slot + 1) : null;
+    }
+
+    /**
+     * Se llama una vez por frame desde receivePreUpdate, después de FrameContext.capture()
+     */
+    public static void update(FrameContext frame) {
+        if (!frame.isSharingAvailable()) {
+            return;
+        }
+
+        AbstractPlayer player = AbstractDungeon.player;
+        AbstractCard card = player.hoveredCard;
+        if (card == null || !DefenseCardDetector.isDefenseCard(card) || !HandIndex.contains(card)) {
+            return;
+        }
+
+        int slot = getPressedSlot();
+        if (slot < 0) {
+            return;
+        }
+
+        RosterSnapshot<AbstractCreature> roster = AllyManager.getSnapshot();
+        if (slot >= roster.size()) {
+            return;
+        }
+
+        AbstractCreature ally = roster.get(slot);
+        if (!(ally instanceof AbstractMonster) || !card.canUse(player, (AbstractMonster) ally)) {
+            return;
+        }
+
+        // Mismo camino que soltar la carta sobre un objetivo: el juego la usa desde la cola
+        pendingCard = card;
+        AbstractDungeon.actionManager.cardQueue.add(new CardQueueItem(card, (AbstractMonster) ally));
+        player.releaseCard();
+    }
+
+    /**
+     * Indica si la carta se jugó por slot, y olvida el pendiente
+     */
+    public static boolean consumePending(AbstractCard card) {
+        if (card == null || card != pendingCard) {
+            return false;
+        }
+        pendingCard = null;
+        return true;
+    }
+
+    public static void reset() {
+        pendingCard = null;
+    }
+}
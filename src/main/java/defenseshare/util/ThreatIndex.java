@@ -0,0 +1,252 @@
+package defenseshare.util;
+
+import com.megacrit.cardcrawl.core.AbstractCreature;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Índice de peligro de los aliados para AUTO_SELECT_LOWEST_HP.
+ *
+ * Se actualiza de forma incremental desde ThreatIndexPatch. Cada intent de
+ * ataque suma su daño al objetivo del monstruo: por defecto el jugador local,
+ * o el aliado que indique su AllyProvider (getIntentTarget; TiS no lo indica,
+ * así que con TiS todo el daño entrante es del jugador local). El peligro de
+ * cada criatura es su daño entrante menos su vida efectiva (HP + block), y el
+ * aliado con más peligro se mantiene en cada evento, así que consultarlo es
+ * O(1) y no hay que recorrer monstruos ni aliados en cada frame.
+ * Solo desde el hilo del juego.
+ */
+public final class ThreatIndex {
+
+    // Campos privados de AbstractMonster con el número de golpes del intent
+    private static final MethodHandle IS_MULTI_DMG = resolveGetter("isMultiDmg", boolean.class);
+    private static final MethodHandle INTENT_MULTI_AMT = resolveGetter("intentMultiAmt", int.class);
+
+    // Daño de intent de cada monstruo, a quién va y el total por objetivo
+    private static final Map<AbstractMonster, Integer> contributions = new IdentityHashMap<>();
+    private static final Map<AbstractMonster, AbstractCreature> intentTargets = new IdentityHashMap<>();
+    private static final Map<AbstractCreature, Integer> incoming = new IdentityHashMap<>();
+
+    // Peligro (daño entrante - vida efectiva) por slot del roster indexado
+    private static final Map<AbstractCreature, Integer> slots = new IdentityHashMap<>();
+    private static AbstractCreature[] allies = new AbstractCreature[0];
+    private static int[] threat = new int[0];
+    private static int indexedVersion = -1;
+    private static int maxSlot = -1;
+
+    private ThreatIndex() {}
+
+    private static MethodHandle resolveGetter(String name, Class<?> type) {
+        try {
+            Field field = AbstractMonster.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                .asType(MethodType.methodType(type, AbstractMonster.class));
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Olvida todo; al terminar cada combate y al empezar una partida
+     */
+    public static void reset() {
+        contributions.clear();
+        intentTargets.clear();
+        incoming.clear();
+        slots.clear();
+        allies = new AbstractCreature[0];
+        threat = new int[0];
+        indexedVersion = -1;
+        maxSlot = -1;
+    }
+
+    /**
+     * Un monstruo cambió de intent o recalculó su daño (createIntent, applyPowers)
+     */
+    public static void onIntentChanged(AbstractMonster monster) {
+        if (monster == null || AllyManager.isAlly(monster)) {
+            return;
+        }
+        removeContribution(monster);
+        int damage = computeIntentDamage(monster);
+        if (damage > 0) {
+            AbstractCreature target = AllyManager.getIntentTarget(monster);
+            if (target == null) {
+                target = AbstractDungeon.player;
+            }
+            if (target != null) {
+                contributions.put(monster, damage);
+                intentTargets.put(monster, target);
+                addIncoming(target, damage);
+            }
+        }
+    }
+
+    /**
+     * Un monstruo murió: deja de aportar daño
+     */
+    public static void onMonsterGone(AbstractMonster monster) {
+        removeContribution(monster);
+    }
+
+    private static void removeContribution(AbstractMonster monster) {
+        Integer previous = contributions.remove(monster);
+        AbstractCreature target = intentTargets.remove(monster);
+        if (previous != null && target != null) {
+            addIncoming(target, -previous);
+        }
+    }
+
+    private static void addIncoming(AbstractCreature target, int delta) {
+        int value = getIncomingDamage(target) + delta;
+        if (value != 0) {
+            incoming.put(target, value);
+        } else {
+            incoming.remove(target);
+        }
+        onCreatureChanged(target);
+    }
+
+    /**
+     * Cambió la vida, el block o el daño entrante de una criatura
+     */
+    public static void onCreatureChanged(AbstractCreature creature) {
+        if (creature == null || creature == AbstractDungeon.player) {
+            // El jugador se calcula al consultar: HP y block son campos directos
+            return;
+        }
+        if (syncRoster()) {
+            // Recién reconstruido con los valores actuales
+            return;
+        }
+
+        Integer slot = slots.get(creature);
+        if (slot == null) {
+            return;
+        }
+
+        int value = computeThreat(creature);
+        int old = threat[slot];
+        threat[slot] = value;
+
+        if (maxSlot < 0 || value > threat[maxSlot]) {
+            maxSlot = slot;
+        } else if (slot == maxSlot && value < old) {
+            // Solo si baja el máximo hay que buscar otro (roster pequeño)
+            recomputeMax();
+        }
+    }
+
+    /**
+     * Aliado con más peligro, o null si no hay aliados
+     */
+    public static AbstractCreature getMostEndangeredAlly() {
+        syncRoster();
+        return maxSlot >= 0 ? allies[maxSlot] : null;
+    }
+
+    /**
+     * Daño entrante menos vida efectiva; cuanto más alto, más peligro
+     */
+    public static int getThreat(AbstractCreature creature) {
+        if (creature == null) {
+            return Integer.MIN_VALUE;
+        }
+        if (creature != AbstractDungeon.player) {
+            syncRoster();
+            Integer slot = slots.get(creature);
+            if (slot != null) {
+                return threat[slot];
+            }
+        }
+        return computeThreat(creature);
+    }
+
+    /**
+     * Indica si el aliado corre más peligro que el jugador local
+     */
+    public static boolean isMoreEndangeredThanPlayer(AbstractCreature ally) {
+        return ally != null && AbstractDungeon.player != null &&
+            getThreat(ally) > getThreat(AbstractDungeon.player);
+    }
+
+    /**
+     * Daño de los intents que apuntan a la criatura
+     */
+    public static int getIncomingDamage(AbstractCreature creature) {
+        Integer value = incoming.get(creature);
+        return value != null ? value : 0;
+    }
+
+    /**
+     * Reconstruye los slots si cambió el roster; devuelve true si lo hizo
+     */
+    private static boolean syncRoster() {
+        RosterSnapshot<AbstractCreature> roster = AllyManager.getSnapshot();
+        if (roster.getVersion() == indexedVersion) {
+            return false;
+        }
+        indexedVersion = roster.getVersion();
+
+        int size = roster.size();
+        slots.clear();
+        allies = new AbstractCreature[size];
+        threat = new int[size];
+        for (int i = 0; i < size; i++) {
+            AbstractCreature ally = roster.get(i);
+            allies[i] = ally;
+            threat[i] = computeThreat(ally);
+            slots.put(ally, i);
+        }
+        recomputeMax();
+        return true;
+    }
+
+    private static void recomputeMax() {
+        maxSlot = -1;
+        for (int i = 0; i < threat.length; i++) {
+            if (maxSlot < 0 || threat[i] > threat[maxSlot]) {
+                maxSlot = i;
+            }
+        }
+    }
+
+    private static int computeThreat(AbstractCreature creature) {
+        return getIncomingDamage(creature) - effectiveHp(creature);
+    }
+
+    private static int effectiveHp(AbstractCreature creature) {
+        return Math.max(0, creature.currentHealth) + Math.max(0, creature.currentBlock);
+    }
+
+    private static int computeIntentDamage(AbstractMonster monster) {
+        if (monster.intent == null || monster.isDeadOrEscaped()) {
+            return 0;
+        }
+        switch (monster.intent) {
+            case ATTACK:
+            case ATTACK_BUFF:
+            case ATTACK_DEBUFF:
+            case ATTACK_DEFEND:
+                break;
+            default:
+                return 0;
+        }
+
+        int damage = Math.max(0, monster.getIntentDmg());
+        try {
+            if (IS_MULTI_DMG != null && INTENT_MULTI_AMT != null && (boolean) IS_MULTI_DMG.invokeExact(monster)) {
+                damage *= Math.max(1, (int) INTENT_MULTI_AMT.invokeExact(monster));
+            }
+        } catch (Throwable ignored) {}
+        return damage;
+    }
+}
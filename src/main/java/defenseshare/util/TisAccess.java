@@ -0,0 +1,192 @@
+package defenseshare.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Accesos tipados a los internos de Together in Spire.
+ *
+ * Se resuelven una sola vez al cargar la clase: el campo de entidades como
+ * MethodHandle en un static final (constante para el JIT) y getPlayers como
+ * Supplier generado con LambdaMetafactory. En runtime no hay Field.get ni
+ * Method.invoke ni comprobaciones de acceso.
+ */
+public final class TisAccess {
+
+    private static final Logger logger = LogManager.getLogger(TisAccess.class.getName());
+
+    private static final String TIS_CLASS = "spireTogether.SpireTogetherMod";
+
+    // Nombres del campo de entidades según la versión de TiS
+    private static final String[] ENTITY_FIELD_NAMES = {"allCharacterEntities", "players", "remotePlayers", "otherPlayers"};
+
+    /**
+     * Forma de la API de TiS encontrada
+     */
+    public enum ApiShape {
+        NOT_INSTALLED,
+        NONE,
+        ENTITY_MAP,
+        PLAYERS_METHOD,
+        ENTITY_MAP_AND_PLAYERS_METHOD
+    }
+
+    private static final boolean INSTALLED;
+    private static final String ENTITIES_FIELD_NAME;
+    private static final MethodHandle ENTITIES_GETTER;
+    private static final Supplier<Object> PLAYERS_SUPPLIER;
+    private static final ApiShape SHAPE;
+
+    static {
+        Class<?> tisClass = null;
+        try {
+            tisClass = Class.forName(TIS_CLASS);
+        } catch (ClassNotFoundException ignored) {}
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        String fieldName = null;
+        MethodHandle getter = null;
+        Supplier<Object> players = null;
+
+        if (tisClass != null) {
+            for (String name : ENTITY_FIELD_NAMES) {
+                getter = resolveStaticGetter(lookup, tisClass, name);
+                if (getter != null) {
+                    fieldName = name;
+                    break;
+                }
+            }
+            players = resolvePlayersSupplier(lookup, tisClass);
+        }
+
+        INSTALLED = tisClass != null;
+        ENTITIES_FIELD_NAME = fieldName;
+        ENTITIES_GETTER = getter;
+        PLAYERS_SUPPLIER = players;
+
+        if (!INSTALLED) {
+            SHAPE = ApiShape.NOT_INSTALLED;
+        } else if (getter != null && players != null) {
+            SHAPE = ApiShape.ENTITY_MAP_AND_PLAYERS_METHOD;
+        } else if (getter != null) {
+            SHAPE = ApiShape.ENTITY_MAP;
+        } else if (players != null) {
+            SHAPE = ApiShape.PLAYERS_METHOD;
+        } else {
+            SHAPE = ApiShape.NONE;
+        }
+    }
+
+    private static MethodHandle resolveStaticGetter(MethodHandles.Lookup lookup, Class<?> clazz, String name) {
+        try {
+            Field field = clazz.getDeclaredField(name);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                return null;
+            }
+            field.setAccessible(true);
+            return lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> resolvePlayersSupplier(MethodHandles.Lookup lookup, Class<?> clazz) {
+        Method method;
+        MethodHandle handle;
+        try {
+            method = clazz.getMethod("getPlayers");
+            if (!Modifier.isStatic(method.getModifiers()) || method.getReturnType().isPrimitive()) {
+                return null;
+            }
+            handle = lookup.unreflect(method);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class),
+                handle,
+                handle.type()
+            );
+            return (Supplier<Object>) site.getTarget().invokeExact();
+        } catch (Throwable t) {
+            // Sin acceso para generar la lambda: usar el MethodHandle directamente
+            final MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return generic.invokeExact();
+                } catch (Throwable e) {
+                    return null;
+                }
+            };
+        }
+    }
+
+    /**
+     * Registra en el log la forma de la API encontrada
+     */
+    public static void logShape() {
+        switch (SHAPE) {
+            case NOT_INSTALLED:
+                logger.info("Together in Spire no encontrado");
+                break;
+            case NONE:
+                logger.warn("Together in Spire detectado, pero sin API de jugadores conocida");
+                break;
+            default:
+                logger.info("Together in Spire detectado - API: " + SHAPE +
+                    (ENTITIES_FIELD_NAME != null ? " (campo " + ENTITIES_FIELD_NAME + ")" : ""));
+                break;
+        }
+    }
+
+    public static boolean isInstalled() {
+        return INSTALLED;
+    }
+
+    public static ApiShape getShape() {
+        return SHAPE;
+    }
+
+    /**
+     * Mapa de entidades de TiS, o null si no está disponible
+     */
+    public static Map<?, ?> getCharacterEntities() {
+        if (ENTITIES_GETTER == null) {
+            return null;
+        }
+        try {
+            Object value = (Object) ENTITIES_GETTER.invokeExact();
+            return value instanceof Map ? (Map<?, ?>) value : null;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resultado de SpireTogetherMod.getPlayers(), o null si no está disponible
+     */
+    public static Object getPlayers() {
+        return PLAYERS_SUPPLIER != null ? PLAYERS_SUPPLIER.get() : null;
+    }
+
+    public static boolean hasPlayersMethod() {
+        return PLAYERS_SUPPLIER != null;
+    }
+}
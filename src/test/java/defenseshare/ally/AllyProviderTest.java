@@ -0,0 +1,65 @@
+package defenseshare.ally;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import spireTogether.monsters.playerChars.NetworkTestCharacter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AllyProviderTest {
+
+    private final ClassLoader classLoader = AllyProvider.class.getClassLoader();
+
+    @After
+    public void tearDown() {
+        System.clearProperty(LocalAllyProvider.ENABLE_PROPERTY);
+        LocalAllyProvider.clearAllies();
+    }
+
+    @Test
+    public void serviceLoaderFindsTheRegisteredProviders() {
+        List<AllyProvider> all = AllyProviders.loadAll(classLoader);
+
+        assertEquals(2, all.size());
+        assertTrue(all.get(0) instanceof TogetherInSpireAllyProvider);
+        assertTrue(all.get(1) instanceof LocalAllyProvider);
+    }
+
+    @Test
+    public void localProviderIsInstalledOnlyWithItsProperty() {
+        // Sin TiS en el classpath de test y sin la propiedad: ninguno
+        assertTrue(AllyProviders.loadInstalled(classLoader).isEmpty());
+
+        System.setProperty(LocalAllyProvider.ENABLE_PROPERTY, "true");
+        List<AllyProvider> installed = AllyProviders.loadInstalled(classLoader);
+        assertEquals(1, installed.size());
+        assertTrue(installed.get(0) instanceof LocalAllyProvider);
+        assertEquals("Local", installed.get(0).getName());
+    }
+
+    @Test
+    public void localProviderStampChangesWithTheRoster() {
+        LocalAllyProvider provider = new LocalAllyProvider();
+        int stamp = provider.getRosterStamp();
+
+        LocalAllyProvider.clearAllies();
+        assertNotEquals(stamp, provider.getRosterStamp());
+        assertFalse(provider.isAlly(null));
+        assertEquals(AllyProvider.NO_PLAYER, provider.getPlayerId(null));
+    }
+
+    @Test
+    public void networkClassesAreClassifiedByName() {
+        assertTrue(TogetherInSpireAllyProvider.isNetworkClass(NetworkTestCharacter.class));
+        // Cacheado por clase: la segunda consulta da lo mismo
+        assertTrue(TogetherInSpireAllyProvider.isNetworkClass(NetworkTestCharacter.class));
+        assertFalse(TogetherInSpireAllyProvider.isNetworkClass(LocalAllyProvider.class));
+        assertFalse(TogetherInSpireAllyProvider.isNetworkClass(Object.class));
+    }
+}
@@ -0,0 +1,156 @@
+package defenseshare.net;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DesyncDetectorTest {
+
+    private static final int SENDER = 1;
+    private static final int TURN = 4;
+
+    private LoopbackTransport[] transports;
+    private DesyncDetector[] detectors;
+    private List<String> reports;
+
+    @Before
+    public void setUp() {
+        transports = LoopbackTransport.group(3);
+        detectors = new DesyncDetector[transports.length];
+        reports = new ArrayList<>();
+        for (int i = 0; i < transports.length; i++) {
+            detectors[i] = connect(transports[i]);
+        }
+    }
+
+    private DesyncDetector connect(LoopbackTransport transport) {
+        int localId = transport.getLocalPlayerId();
+        DesyncDetector detector = new DesyncDetector(localId, transport::send,
+            (peer, sender, target, first) -> reports.add(localId + "<>" + peer + " " + sender + "->" + target + " #" + first));
+        transport.setReceiver(frame -> {
+            switch (ShareCodec.frameType(frame)) {
+                case ShareCodec.FRAME_CHECKSUM:
+                    detector.onChecksums(ShareCodec.decodeChecksums(frame));
+                    break;
+                case ShareCodec.FRAME_PREFIX_REQUEST:
+                    detector.onPrefixRequest(ShareCodec.decodePrefixRequest(frame));
+                    break;
+                default:
+                    break;
+            }
+        });
+        return detector;
+    }
+
+    private DesyncDetector detector(int playerId) {
+        return detectors[playerId - 1];
+    }
+
+    /**
+     * El remitente registra lo enviado y el destino lo aplicado, que difiere en los índices dados
+     */
+    private void share(int target, int from, int to, Integer... divergentAt) {
+        List<Integer> divergent = Arrays.asList(divergentAt);
+        for (int seq = from; seq < to; seq++) {
+            int amount = 5 + seq % 3;
+            detector(SENDER).record(SENDER, target, seq, amount, TURN);
+            detector(target).record(SENDER, target, seq, divergent.contains(seq) ? amount - 1 : amount, TURN);
+        }
+    }
+
+    private void exchangeChecksums() {
+        for (DesyncDetector detector : detectors) {
+            detector.sendChecksums();
+        }
+    }
+
+    @Test
+    public void matchingHistoriesReportNothing() {
+        share(2, 0, 50);
+        share(3, 50, 80);
+        exchangeChecksums();
+
+        assertEquals(Collections.emptyList(), reports);
+        for (DesyncDetector detector : detectors) {
+            assertEquals(0, detector.getActiveSearches());
+        }
+    }
+
+    @Test
+    public void locatesTheFirstDivergentShare() {
+        share(2, 0, 40, 17, 30);
+        detector(2).sendChecksums();
+
+        // El remitente busca con el destino; el tercer cliente no tiene esa pareja
+        assertEquals(Collections.singletonList("1<>2 1->2 #17"), reports);
+        assertEquals(0, detector(1).getActiveSearches());
+    }
+
+    @Test
+    public void laterDivergencesAreStillReported() {
+        share(2, 0, 20, 5);
+        detector(2).sendChecksums();
+        assertEquals(Collections.singletonList("1<>2 1->2 #5"), reports);
+
+        // Sin nuevas diferencias no se repite el aviso
+        share(2, 20, 30);
+        detector(2).sendChecksums();
+        assertEquals(1, reports.size());
+
+        share(2, 30, 45, 38);
+        detector(2).sendChecksums();
+        assertEquals(Arrays.asList("1<>2 1->2 #5", "1<>2 1->2 #38"), reports);
+        assertEquals(0, detector(1).getActiveSearches());
+    }
+
+    @Test
+    public void searchesWithSeveralPeersDoNotMix() {
+        // El mismo remitente diverge con cada destino en un share distinto
+        share(2, 0, 32, 3);
+        share(3, 0, 32, 27);
+        detector(2).sendChecksums();
+        detector(3).sendChecksums();
+
+        assertEquals(Arrays.asList("1<>2 1->2 #3", "1<>3 1->3 #27"), reports);
+    }
+
+    @Test
+    public void bothSidesFindTheSameShare() {
+        share(2, 0, 64, 41);
+        exchangeChecksums();
+
+        assertTrue(reports.contains("1<>2 1->2 #41"));
+        assertTrue(reports.contains("2<>1 1->2 #41"));
+        assertEquals(2, reports.size());
+    }
+
+    @Test
+    public void missingSharesAreComparedLater() {
+        share(2, 0, 10);
+        // El destino aún no ha aplicado los dos últimos
+        detector(SENDER).record(SENDER, 2, 10, 5, TURN);
+        detector(SENDER).record(SENDER, 2, 11, 5, TURN);
+        detector(SENDER).sendChecksums();
+        detector(2).sendChecksums();
+
+        assertEquals(Collections.emptyList(), reports);
+    }
+
+    @Test
+    public void resetForgetsHistory() {
+        share(2, 0, 10, 2);
+        detector(1).reset();
+        detector(2).reset();
+        exchangeChecksums();
+
+        assertEquals(Collections.emptyList(), reports);
+        assertEquals(0, detector(1).getChecksum().getCount(ShareChecksum.streamKey(SENDER, 2)));
+    }
+}
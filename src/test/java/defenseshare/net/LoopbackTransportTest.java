@@ -0,0 +1,94 @@
+package defenseshare.net;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class LoopbackTransportTest {
+
+    @Test
+    public void pairDeliversToThePeerOnly() {
+        LoopbackTransport[] pair = LoopbackTransport.pair();
+        List<byte[]> receivedByA = new ArrayList<>();
+        List<byte[]> receivedByB = new ArrayList<>();
+        pair[0].setReceiver(receivedByA::add);
+        pair[1].setReceiver(receivedByB::add);
+
+        byte[] frame = {1, 2, 3};
+        pair[0].send(frame);
+
+        assertTrue(receivedByA.isEmpty());
+        assertEquals(1, receivedByB.size());
+        assertArrayEquals(frame, receivedByB.get(0));
+        // Cada extremo recibe su propia copia
+        assertNotSame(frame, receivedByB.get(0));
+        assertEquals(3, pair[0].getBytesSent());
+        assertEquals(1, pair[0].getFramesSent());
+    }
+
+    @Test
+    public void endpointsHaveDistinctPlayerIds() {
+        LoopbackTransport[] pair = LoopbackTransport.pair();
+        assertNotEquals(pair[0].getLocalPlayerId(), pair[1].getLocalPlayerId());
+        assertTrue(pair[0].isAvailable());
+    }
+
+    @Test
+    public void groupBroadcastsToEveryOtherEndpoint() {
+        LoopbackTransport[] group = LoopbackTransport.group(3);
+        int[] received = new int[3];
+        for (int i = 0; i < group.length; i++) {
+            final int index = i;
+            group[i].setReceiver(frame -> received[index]++);
+        }
+        group[1].send(new byte[] {1});
+        assertArrayEquals(new int[] {1, 0, 1}, received);
+        assertEquals(3, group[2].getLocalPlayerId());
+    }
+
+    @Test
+    public void selfReceivesItsOwnFrames() {
+        LoopbackTransport transport = LoopbackTransport.self();
+        List<byte[]> received = new ArrayList<>();
+        transport.setReceiver(received::add);
+        transport.send(new byte[] {9});
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void closedEndpointsNeitherSendNorReceive() {
+        LoopbackTransport[] pair = LoopbackTransport.pair();
+        List<byte[]> receivedByB = new ArrayList<>();
+        pair[1].setReceiver(receivedByB::add);
+
+        pair[1].close();
+        pair[0].send(new byte[] {1});
+        assertTrue(receivedByB.isEmpty());
+
+        pair[0].close();
+        pair[0].send(new byte[] {1});
+        assertEquals(1, pair[0].getFramesSent());
+    }
+
+    @Test
+    public void sharesSurviveTheTransport() {
+        LoopbackTransport[] pair = LoopbackTransport.pair();
+        List<ShareBatch> received = new ArrayList<>();
+        pair[1].setReceiver(frame -> received.add(ShareCodec.decodeShares(frame)));
+
+        List<ShareEvent> events = new ArrayList<>();
+        events.add(new ShareEvent(0, ShareEvent.hashCardId("Defend_B"), pair[1].getLocalPlayerId(), 5));
+        pair[0].send(ShareCodec.encodeShares(pair[0].getLocalPlayerId(), 3, events));
+
+        assertEquals(1, received.size());
+        assertEquals(pair[0].getLocalPlayerId(), received.get(0).getSender());
+        assertEquals(events, received.get(0).getEvents());
+    }
+}
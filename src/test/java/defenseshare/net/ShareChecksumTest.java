@@ -0,0 +1,55 @@
+package defenseshare.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ShareChecksumTest {
+
+    @Test
+    public void streamKeyKeepsSenderAndTarget() {
+        long stream = ShareChecksum.streamKey(-7, -1);
+        assertEquals(-7, ShareChecksum.senderOf(stream));
+        assertEquals(-1, ShareChecksum.targetOf(stream));
+    }
+
+    @Test
+    public void prefixesDependOnOrderAndValues() {
+        ShareChecksum a = new ShareChecksum();
+        ShareChecksum b = new ShareChecksum();
+        long stream = ShareChecksum.streamKey(1, 2);
+        a.record(stream, 0, 5, 1);
+        a.record(stream, 1, 6, 1);
+        b.record(stream, 1, 6, 1);
+        b.record(stream, 0, 5, 1);
+
+        assertEquals(a.getPrefix(stream, 0), b.getPrefix(stream, 0));
+        assertNotEquals(a.getPrefix(stream, 2), b.getPrefix(stream, 2));
+        assertEquals(2, a.getCount(stream));
+    }
+
+    @Test
+    public void suffixesCompareThroughRollPower() {
+        // Mismos eventos a partir del 3 con un prefijo distinto
+        ShareChecksum a = new ShareChecksum();
+        ShareChecksum b = new ShareChecksum();
+        long stream = ShareChecksum.streamKey(1, 2);
+        for (int seq = 0; seq < 10; seq++) {
+            a.record(stream, seq, 5, 1);
+            b.record(stream, seq, seq < 3 ? 4 : 5, 1);
+        }
+
+        long scale = ShareChecksum.rollPower(10 - 3);
+        assertEquals((a.getPrefix(stream, 3) - b.getPrefix(stream, 3)) * scale,
+            a.getPrefix(stream, 10) - b.getPrefix(stream, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prefixBeyondCountIsRejected() {
+        ShareChecksum checksum = new ShareChecksum();
+        long stream = ShareChecksum.streamKey(1, 2);
+        checksum.record(stream, 0, 5, 1);
+        checksum.getPrefix(stream, 2);
+    }
+}
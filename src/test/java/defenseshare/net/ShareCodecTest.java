@@ -0,0 +1,160 @@
+package defenseshare.net;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class ShareCodecTest {
+
+    @Test
+    public void sharesRoundTrip() {
+        List<ShareEvent> events = Arrays.asList(
+            new ShareEvent(7, ShareEvent.hashCardId("Defend_R"), 2, 5),
+            new ShareEvent(8, ShareEvent.hashCardId("Shrug It Off"), -1, 8),
+            new ShareEvent(300, ShareEvent.NO_CARD, Integer.MAX_VALUE, 999));
+
+        byte[] frame = ShareCodec.encodeShares(0xCAFEBABE, 12, events);
+        assertEquals(ShareCodec.FRAME_SHARES, ShareCodec.frameType(frame));
+
+        ShareBatch batch = ShareCodec.decodeShares(frame);
+        assertEquals(0xCAFEBABE, batch.getSender());
+        assertEquals(12, batch.getTurn());
+        assertEquals(events, batch.getEvents());
+    }
+
+    @Test
+    public void emptyBatchRoundTrip() {
+        ShareBatch batch = ShareCodec.decodeShares(ShareCodec.encodeShares(1, 0, new ArrayList<ShareEvent>()));
+        assertEquals(1, batch.getSender());
+        assertEquals(0, batch.getEvents().size());
+    }
+
+    @Test
+    public void checksumsRoundTrip() {
+        List<ShareCodec.Checksum> checksums = Arrays.asList(
+            new ShareCodec.Checksum(1, 2, 0, 0L),
+            new ShareCodec.Checksum(-5, 7, 1000, 0x8000000000000001L));
+
+        ShareCodec.ChecksumReport report = ShareCodec.decodeChecksums(ShareCodec.encodeChecksums(3, checksums));
+        assertEquals(3, report.reporter);
+        List<ShareCodec.Checksum> decoded = report.checksums;
+        assertEquals(2, decoded.size());
+        for (int i = 0; i < checksums.size(); i++) {
+            assertEquals(checksums.get(i).sender, decoded.get(i).sender);
+            assertEquals(checksums.get(i).target, decoded.get(i).target);
+            assertEquals(checksums.get(i).eventCount, decoded.get(i).eventCount);
+            assertEquals(checksums.get(i).hash, decoded.get(i).hash);
+        }
+    }
+
+    @Test
+    public void prefixRequestRoundTrip() {
+        ShareCodec.PrefixRequest request = ShareCodec.decodePrefixRequest(
+            ShareCodec.encodePrefixRequest(new ShareCodec.PrefixRequest(1, 2, 3, -4, 17)));
+        assertEquals(1, request.requester);
+        assertEquals(2, request.responder);
+        assertEquals(3, request.sender);
+        assertEquals(-4, request.target);
+        assertEquals(17, request.eventCount);
+    }
+
+    @Test
+    public void appliedRoundTrip() {
+        List<ShareCodec.Applied> applied = Arrays.asList(
+            new ShareCodec.Applied(300, 5, 12),
+            new ShareCodec.Applied(301, 0, 999));
+        ShareCodec.AppliedReport report = ShareCodec.decodeApplied(
+            ShareCodec.encodeApplied(new ShareCodec.AppliedReport(2, 1, applied)));
+
+        assertEquals(2, report.target);
+        assertEquals(1, report.sender);
+        assertEquals(2, report.applied.size());
+        assertEquals(300, report.applied.get(0).sequence);
+        assertEquals(5, report.applied.get(0).amount);
+        assertEquals(12, report.applied.get(0).blockAfter);
+        assertEquals(301, report.applied.get(1).sequence);
+        assertEquals(0, report.applied.get(1).amount);
+        assertEquals(999, report.applied.get(1).blockAfter);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFrameIsRejected() {
+        byte[] frame = ShareCodec.encodeShares(1, 1, Arrays.asList(new ShareEvent(0, 1, 2, 3)));
+        ShareCodec.decodeShares(Arrays.copyOf(frame, frame.length - 1));
+    }
+
+    @Test
+    public void everyTruncationIsRejected() {
+        List<byte[]> frames = Arrays.asList(
+            ShareCodec.encodeShares(1, 3, Arrays.asList(new ShareEvent(5, 7, 2, 300), new ShareEvent(6, 7, 2, 4))),
+            ShareCodec.encodeChecksums(1, Arrays.asList(new ShareCodec.Checksum(1, 2, 9, -1L))),
+            ShareCodec.encodePrefixRequest(new ShareCodec.PrefixRequest(1, 2, 1, 2, 9)),
+            ShareCodec.encodeApplied(new ShareCodec.AppliedReport(2, 1,
+                Arrays.asList(new ShareCodec.Applied(5, 300, 310), new ShareCodec.Applied(6, 4, 314)))));
+        for (byte[] frame : frames) {
+            for (int length = 1; length < frame.length; length++) {
+                assertRejected(Arrays.copyOf(frame, length));
+            }
+        }
+    }
+
+    @Test
+    public void oversizedCountsAreRejectedBeforeAllocating() {
+        // Cuenta de 2^31 - 1 entradas en un frame de 11 bytes
+        assertRejected(new byte[] {1, 0, 0, 0, 2, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 7});
+        assertRejected(new byte[] {2, 0, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 7});
+        assertRejected(new byte[] {4, 0, 0, 0, 2, 0, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 7});
+        // Una entrada más de las que caben
+        byte[] frame = ShareCodec.encodeShares(1, 1, Arrays.asList(new ShareEvent(0, 1, 2, 3)));
+        frame[6] = 2;
+        assertRejected(frame);
+    }
+
+    /**
+     * Decodifica según el tipo y exige IllegalArgumentException
+     */
+    private static void assertRejected(byte[] frame) {
+        try {
+            switch (ShareCodec.frameType(frame)) {
+                case ShareCodec.FRAME_SHARES:
+                    ShareCodec.decodeShares(frame);
+                    break;
+                case ShareCodec.FRAME_CHECKSUM:
+                    ShareCodec.decodeChecksums(frame);
+                    break;
+                case ShareCodec.FRAME_PREFIX_REQUEST:
+                    ShareCodec.decodePrefixRequest(frame);
+                    break;
+                case ShareCodec.FRAME_APPLIED:
+                    ShareCodec.decodeApplied(frame);
+                    break;
+                default:
+                    fail("Tipo de frame inesperado");
+            }
+            fail("Frame de " + frame.length + " bytes aceptado");
+        } catch (IllegalArgumentException expected) {
+            // Rechazado sin reservar memoria de más
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongFrameTypeIsRejected() {
+        ShareCodec.decodeChecksums(ShareCodec.encodePrefixRequest(new ShareCodec.PrefixRequest(1, 2, 1, 2, 1)));
+    }
+
+    @Test
+    public void cardHashIsStableAcrossClients() {
+        // FNV-1a de 32 bits: el valor no depende del orden de internado de cada cliente
+        assertEquals(0x811c9dc5, ShareEvent.hashCardId(""));
+        assertEquals(0xe40c292c, ShareEvent.hashCardId("a"));
+        assertEquals(ShareEvent.hashCardId("Defend_R"), ShareEvent.hashCardId(new String("Defend_R")));
+        assertNotEquals(ShareEvent.hashCardId("Defend_R"), ShareEvent.hashCardId("Defend_G"));
+        assertEquals(ShareEvent.NO_CARD, ShareEvent.hashCardId(null));
+    }
+}
@@ -0,0 +1,57 @@
+package defenseshare.telemetry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class TelemetryDictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenKeepsExistingIds() throws IOException {
+        Path path = folder.getRoot().toPath().resolve(TelemetryDictionary.FILE_NAME);
+        try (TelemetryDictionary dictionary = TelemetryDictionary.open(path)) {
+            assertEquals(0, dictionary.idOf("Alice"));
+            assertEquals(1, dictionary.idOf("Defend_R"));
+            assertEquals(0, dictionary.idOf("Alice"));
+        }
+
+        try (TelemetryDictionary dictionary = TelemetryDictionary.open(path)) {
+            assertEquals(1, dictionary.idOf("Defend_R"));
+            assertEquals(0, dictionary.idOf("Alice"));
+            assertEquals(2, dictionary.idOf("Bob"));
+        }
+
+        assertEquals(Arrays.asList("Alice", "Defend_R", "Bob"), TelemetryDictionary.load(path));
+    }
+
+    @Test
+    public void lineBreaksAreFlattenedAndSurviveReopen() throws IOException {
+        Path path = folder.getRoot().toPath().resolve(TelemetryDictionary.FILE_NAME);
+        try (TelemetryDictionary dictionary = TelemetryDictionary.open(path)) {
+            assertEquals(0, dictionary.idOf("Jugador\nUno"));
+            assertEquals(0, dictionary.idOf("Jugador Uno"));
+        }
+
+        try (TelemetryDictionary dictionary = TelemetryDictionary.open(path)) {
+            assertEquals(0, dictionary.idOf("Jugador Uno"));
+            assertEquals(1, dictionary.idOf("Otro"));
+        }
+    }
+
+    @Test
+    public void nullHasNoId() throws IOException {
+        Path path = folder.getRoot().toPath().resolve(TelemetryDictionary.FILE_NAME);
+        try (TelemetryDictionary dictionary = TelemetryDictionary.open(path)) {
+            assertEquals(TelemetryRecord.NO_ID, dictionary.idOf(null));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package defenseshare.telemetry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendRotateAndAnalyze() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        TelemetryLog log = TelemetryLog.open(directory, 4, 10);
+        try (TelemetryDictionary dictionary = TelemetryDictionary.open(directory.resolve(TelemetryDictionary.FILE_NAME))) {
+            int alice = dictionary.idOf("Alice");
+            int bob = dictionary.idOf("Bob");
+            int defend = dictionary.idOf("Defend_R");
+
+            // 10 registros con segmentos de 4: tres segmentos
+            for (int i = 0; i < 6; i++) {
+                log.append(1000L + i, TelemetryRecord.TYPE_SHARE, 0, 0, 1, alice, bob, defend, 5 + i);
+            }
+            log.append(2000L, TelemetryRecord.TYPE_REDIRECT_FAILURE, TelemetryRecord.FAILURE_ALLY_DEAD, 0, 2,
+                alice, bob, defend, 5);
+            log.append(2001L, TelemetryRecord.TYPE_REDIRECT_FAILURE, TelemetryRecord.FAILURE_NO_BLOCK, 0, 2,
+                alice, bob, defend, 0);
+            log.append(3000L, TelemetryRecord.TYPE_ROSTER_CHANGE, 0, 0, 2, TelemetryRecord.NO_ID,
+                TelemetryRecord.NO_ID, TelemetryRecord.NO_ID, 2);
+            log.append(3001L, TelemetryRecord.TYPE_SHARE, 0, 1, 3, bob, alice, defend, 8);
+        }
+
+        assertEquals(3, TelemetryLog.listSegments(directory).size());
+
+        ShareLogAnalyzer analyzer = ShareLogAnalyzer.analyze(directory);
+        assertEquals(10, analyzer.getRecords());
+        assertEquals(1, analyzer.getRosterChanges());
+        assertEquals(1, analyzer.getFailures(TelemetryRecord.FAILURE_ALLY_DEAD));
+        assertEquals(1, analyzer.getFailures(TelemetryRecord.FAILURE_NO_BLOCK));
+
+        ShareLogAnalyzer.Stats alice = analyzer.getGiven("Alice");
+        assertNotNull(alice);
+        assertEquals(6, alice.shares);
+        assertEquals(5 + 6 + 7 + 8 + 9 + 10, alice.block);
+        assertEquals(10, alice.maxBlock);
+        assertEquals(2, alice.failures);
+
+        assertEquals(8, analyzer.getReceived("Alice").block);
+        assertEquals(7, analyzer.getCard("Defend_R").shares);
+        assertNull(analyzer.getGiven("Carol"));
+    }
+
+    @Test
+    public void rotationDeletesSegmentsBeyondTheLimit() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        TelemetryLog log = TelemetryLog.open(directory, 2, 2);
+        for (int i = 0; i < 9; i++) {
+            log.append(i, TelemetryRecord.TYPE_SHARE, 0, 0, 1, 0, 1, 2, 1);
+        }
+
+        List<Path> segments = TelemetryLog.listSegments(directory);
+        assertEquals(2, segments.size());
+        assertTrue(segments.get(1).getFileName().toString().endsWith("000004.bin"));
+        // Quedan los dos últimos segmentos: 2 + 1 registros
+        assertEquals(3, ShareLogAnalyzer.analyze(directory).getRecords());
+    }
+
+    @Test
+    public void reopenContinuesTheLastSegment() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        TelemetryLog first = TelemetryLog.open(directory, 4, 10);
+        first.append(1L, TelemetryRecord.TYPE_SHARE, 0, 0, 1, 0, 1, 2, 3);
+
+        TelemetryLog second = TelemetryLog.open(directory, 4, 10);
+        second.append(2L, TelemetryRecord.TYPE_SHARE, 0, 0, 1, 0, 1, 2, 4);
+
+        assertEquals(1, TelemetryLog.listSegments(directory).size());
+        assertEquals(2, ShareLogAnalyzer.analyze(directory).getRecords());
+    }
+}
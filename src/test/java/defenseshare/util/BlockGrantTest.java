@@ -0,0 +1,40 @@
+package defenseshare.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BlockGrantTest {
+
+    @Test
+    public void singleGrantEqualsTheProjection() {
+        // Defend con Destreza 2 local (7) compartido a un aliado con Frágil (3)
+        assertEquals(3, BlockGrant.toAlly(7, 7, 3));
+        // Y al revés: el jugador con Frágil, el aliado con Destreza
+        assertEquals(9, BlockGrant.toAlly(3, 3, 9));
+    }
+
+    @Test
+    public void repeatedCardBlockIsProjectedEachTime() {
+        // Carta que da su block dos veces
+        assertEquals(2 * 6, BlockGrant.toAlly(2 * 5, 5, 6));
+    }
+
+    @Test
+    public void extraBlockDuringThePlayIsGrantedAsIs() {
+        // Block de la carta más 1 de After Image en la misma jugada
+        assertEquals(6 + 1, BlockGrant.toAlly(5 + 1, 5, 6));
+    }
+
+    @Test
+    public void cardsWithoutBlockValueGrantWhatWasCollected() {
+        // Cartas que solo dan block con acciones propias: no hay card.block que proyectar
+        assertEquals(4, BlockGrant.toAlly(4, 0, 0));
+        assertEquals(0, BlockGrant.toAlly(0, 5, 6));
+    }
+
+    @Test
+    public void projectionReducedToZeroGrantsNothingFromTheCard() {
+        assertEquals(0, BlockGrant.toAlly(5, 5, 0));
+    }
+}
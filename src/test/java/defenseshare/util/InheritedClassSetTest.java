@@ -0,0 +1,58 @@
+package defenseshare.util;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InheritedClassSetTest {
+
+    static class Action {
+        public void update() {}
+    }
+
+    static class BlockAction extends Action {
+        @Override
+        public void update() {}
+    }
+
+    // Hereda update() de BlockAction
+    static class FastBlockAction extends BlockAction {}
+
+    // Redefine update(): el veredicto de BlockAction no vale
+    static class CustomBlockAction extends BlockAction {
+        @Override
+        public void update() {}
+    }
+
+    static class DamageAction extends Action {
+        @Override
+        public void update() {}
+    }
+
+    private final InheritedClassSet set =
+        new InheritedClassSet(Collections.singleton(BlockAction.class.getName()), "update");
+
+    @Test
+    public void listedClassesBelong() {
+        assertTrue(set.contains(BlockAction.class));
+        assertFalse(set.contains(DamageAction.class));
+        assertFalse(set.contains(Action.class));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void subclassesInheritUnlessTheyOverride() {
+        assertTrue(set.contains(FastBlockAction.class));
+        assertFalse(set.contains(CustomBlockAction.class));
+    }
+
+    @Test
+    public void unrelatedClassesDoNotBelong() {
+        assertFalse(set.contains(Object.class));
+        assertFalse(set.contains(String.class));
+    }
+}
@@ -0,0 +1,217 @@
+package defenseshare.util;
+
+import defenseshare.net.LoopbackTransport;
+import defenseshare.net.ShareBatch;
+import defenseshare.net.ShareCodec;
+import defenseshare.net.ShareEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class PredictionBufferTest {
+
+    private static final long TIMEOUT = 1000L;
+
+    /**
+     * Aliado tal como lo ve el remitente: su block sincronizado
+     */
+    private static final class Ally {
+        int synced = 0;
+    }
+
+    private LoopbackTransport sender;
+    private LoopbackTransport target;
+    private Ally ally;
+    private PredictionBuffer<Ally> buffer;
+
+    // Estado real del jugador destino
+    private int targetBlock = 0;
+    private boolean holdShares = false;
+    private boolean holdAcks = false;
+    private final List<byte[]> heldShares = new ArrayList<>();
+    private final List<byte[]> heldAcks = new ArrayList<>();
+    private int nextSequence = 0;
+
+    @Before
+    public void setUp() {
+        LoopbackTransport[] endpoints = LoopbackTransport.pair();
+        sender = endpoints[0];
+        target = endpoints[1];
+        ally = new Ally();
+        buffer = new PredictionBuffer<>(4, TIMEOUT, a -> a.synced);
+
+        // Destino: aplica los shares y confirma con el block que le queda
+        target.setReceiver(frame -> {
+            if (holdShares) {
+                heldShares.add(frame);
+            } else {
+                applyShares(frame);
+            }
+        });
+        // Remitente: concilia las confirmaciones de sus shares
+        sender.setReceiver(frame -> {
+            ShareCodec.AppliedReport report = ShareCodec.decodeApplied(frame);
+            if (report.sender == sender.getLocalPlayerId()) {
+                for (ShareCodec.Applied entry : report.applied) {
+                    buffer.confirm(report.target, entry.sequence, entry.amount, entry.blockAfter);
+                }
+            }
+        });
+    }
+
+    private void applyShares(byte[] frame) {
+        ShareBatch batch = ShareCodec.decodeShares(frame);
+        List<ShareCodec.Applied> applied = new ArrayList<>();
+        for (ShareEvent event : batch.getEvents()) {
+            targetBlock += event.getAmount();
+            applied.add(new ShareCodec.Applied(event.getSequence(), event.getAmount(), targetBlock));
+        }
+        byte[] ack = ShareCodec.encodeApplied(
+            new ShareCodec.AppliedReport(target.getLocalPlayerId(), batch.getSender(), applied));
+        if (holdAcks) {
+            heldAcks.add(ack);
+        } else {
+            target.send(ack);
+        }
+    }
+
+    private void share(int amount, long now) {
+        int sequence = nextSequence++;
+        buffer.predict(ally, target.getLocalPlayerId(), sequence, amount, now);
+        sender.send(ShareCodec.encodeShares(sender.getLocalPlayerId(), 1,
+            Arrays.asList(new ShareEvent(sequence, 0, target.getLocalPlayerId(), amount))));
+    }
+
+    private void deliverShares() {
+        holdShares = false;
+        for (byte[] frame : heldShares) {
+            applyShares(frame);
+        }
+        heldShares.clear();
+    }
+
+    private void deliverAcks() {
+        holdAcks = false;
+        for (byte[] frame : heldAcks) {
+            target.send(frame);
+        }
+        heldAcks.clear();
+    }
+
+    /**
+     * Sincronización del aliado (TiS): el remitente ve el block real del destino
+     */
+    private void sync() {
+        ally.synced = targetBlock;
+    }
+
+    private int displayed() {
+        return ally.synced + buffer.getPending(ally);
+    }
+
+    @Test
+    public void ackThenSync() {
+        share(5, 0);
+        // La confirmación llega antes que la sincronización
+        assertEquals(5, displayed());
+        assertEquals(1, buffer.size());
+
+        sync();
+        assertEquals(5, displayed());
+        assertEquals(0, buffer.update(1, a -> false));
+        assertEquals(0, buffer.size());
+        assertEquals(5, displayed());
+    }
+
+    @Test
+    public void syncBeforeAckDoesNotDoubleCount() {
+        holdAcks = true;
+        share(5, 0);
+        assertEquals(5, displayed());
+
+        sync();
+        assertEquals(5, displayed());
+
+        deliverAcks();
+        assertEquals(5, displayed());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void unrelatedBlockBeforeTheShareIsNeverAddedTwice() {
+        holdShares = true;
+        share(5, 0);
+        assertEquals(5, displayed());
+
+        // El destino gana 3 de otra fuente y se sincroniza antes de recibir el share
+        targetBlock += 3;
+        sync();
+        assertEquals(5, displayed());
+
+        deliverShares();
+        assertEquals(8, displayed());
+        sync();
+        assertEquals(8, displayed());
+        buffer.update(1, a -> false);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void unconfirmedShareIsRolledBack() {
+        target.close();
+        share(5, 0);
+        assertEquals(5, displayed());
+
+        assertEquals(0, buffer.update(TIMEOUT, a -> false));
+        assertEquals(5, displayed());
+        assertEquals(1, buffer.update(TIMEOUT + 1, a -> false));
+        assertEquals(0, displayed());
+    }
+
+    @Test
+    public void confirmedShareWaitsForTheSync() {
+        share(5, 0);
+        // Confirmada pero sin sincronizar: se ve hasta el plazo y después se descarta
+        buffer.update(1, a -> false);
+        assertEquals(5, displayed());
+        assertEquals(1, buffer.update(TIMEOUT + 1, a -> false));
+        assertEquals(0, displayed());
+    }
+
+    @Test
+    public void sharesWithoutTransportLastUntilTheNextSync() {
+        ally.synced = 2;
+        buffer.predict(ally, 0, PredictionBuffer.NO_SEQUENCE, 4, 0);
+        assertEquals(6, displayed());
+        buffer.update(1, a -> false);
+        assertEquals(6, displayed());
+
+        // TiS sincroniza el block del aliado con el share ya aplicado
+        ally.synced = 6;
+        assertEquals(6, displayed());
+        assertEquals(0, buffer.update(2, a -> false));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void deadAlliesAndOverflowDropPredictions() {
+        for (int i = 0; i < 5; i++) {
+            buffer.predict(ally, 0, PredictionBuffer.NO_SEQUENCE, 1, 0);
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(4, buffer.update(1, a -> true));
+        assertEquals(0, displayed());
+    }
+
+    @Test
+    public void acksForOtherSharesAreIgnored() {
+        assertFalse(buffer.confirm(2, 99, 5, 5));
+    }
+}
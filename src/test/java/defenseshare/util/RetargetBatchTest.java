@@ -0,0 +1,125 @@
+package defenseshare.util;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RetargetBatchTest {
+
+    private static final Object SELF = new Object();
+    private static final Object ENEMY = new Object();
+
+    /**
+     * Carta de prueba: target y target original guardado en la propia carta
+     */
+    private static final class FakeCard {
+        Object target;
+        Object original;
+
+        FakeCard(Object target) {
+            this.target = target;
+        }
+    }
+
+    private static RetargetBatch<FakeCard, Object> newBatch() {
+        return new RetargetBatch<>(
+            card -> card.target,
+            (card, target) -> card.target = target,
+            card -> card.original,
+            (card, original) -> card.original = original);
+    }
+
+    @Test
+    public void retargetSavesTheOriginalOnTheCard() {
+        RetargetBatch<FakeCard, Object> batch = newBatch();
+        FakeCard card = new FakeCard(SELF);
+
+        batch.retarget(card, ENEMY);
+
+        assertSame(ENEMY, card.target);
+        assertSame(SELF, card.original);
+        assertEquals(1, batch.size());
+    }
+
+    @Test
+    public void restoreAllRestoresAndForgetsEveryCard() {
+        RetargetBatch<FakeCard, Object> batch = newBatch();
+        FakeCard first = new FakeCard(SELF);
+        FakeCard second = new FakeCard(SELF);
+        batch.retarget(first, ENEMY);
+        batch.retarget(second, ENEMY);
+
+        batch.restoreAll();
+
+        assertSame(SELF, first.target);
+        assertSame(SELF, second.target);
+        assertNull(first.original);
+        assertNull(second.original);
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void restoringACardTwiceKeepsItsOriginalTarget() {
+        RetargetBatch<FakeCard, Object> batch = newBatch();
+        FakeCard card = new FakeCard(SELF);
+        batch.retarget(card, ENEMY);
+
+        // Jugada durante el lote y restaurada después al cerrar el lote
+        batch.restore(card);
+        batch.restoreAll();
+
+        assertSame(SELF, card.target);
+        assertNull(card.original);
+    }
+
+    @Test
+    public void cardsAndOriginalTargetsAreReleasedAfterTheBatch() {
+        RetargetBatch<FakeCard, Object> batch = newBatch();
+        WeakReference<FakeCard> discarded = retargetNewCard(batch);
+        FakeCard kept = new FakeCard(null);
+        WeakReference<Object> original = retargetWithNewOriginal(batch, kept);
+
+        batch.restoreAll();
+        // El juego cambia después el target de la carta que sigue en la mano
+        kept.target = ENEMY;
+
+        assertEquals(0, batch.size());
+        assertNull(kept.original);
+        assertTrue(isCollected(discarded));
+        assertTrue(isCollected(original));
+    }
+
+    /**
+     * Carta que deja de estar referenciada fuera del lote (sale de la mano)
+     */
+    private static WeakReference<FakeCard> retargetNewCard(RetargetBatch<FakeCard, Object> batch) {
+        FakeCard card = new FakeCard(SELF);
+        batch.retarget(card, ENEMY);
+        return new WeakReference<>(card);
+    }
+
+    private static WeakReference<Object> retargetWithNewOriginal(RetargetBatch<FakeCard, Object> batch, FakeCard card) {
+        Object target = new Object();
+        card.target = target;
+        batch.retarget(card, ENEMY);
+        return new WeakReference<>(target);
+    }
+
+    private static boolean isCollected(WeakReference<?> reference) {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return reference.get() == null;
+    }
+}
@@ -0,0 +1,189 @@
+package defenseshare.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RosterPublisherTest {
+
+    private static final Object A = new Object();
+    private static final Object B = new Object();
+    private static final Object C = new Object();
+
+    @Test
+    public void startsEmptyAndDirty() {
+        RosterPublisher<Object> publisher = new RosterPublisher<>();
+        assertTrue(publisher.get().isEmpty());
+        assertEquals(0, publisher.get().getVersion());
+        assertTrue(publisher.isDirty());
+    }
+
+    @Test
+    public void publishesOnlyWhenTheListChanges() {
+        RosterPublisher<Object> publisher = new RosterPublisher<>();
+
+        assertTrue(publisher.rebuild(allies -> allies.addAll(Arrays.asList(A, B))));
+        RosterSnapshot<Object> first = publisher.get();
+        assertEquals(1, first.getVersion());
+        assertFalse(publisher.isDirty());
+
+        publisher.invalidate();
+        assertFalse(publisher.rebuild(allies -> allies.addAll(Arrays.asList(A, B))));
+        assertSame(first, publisher.get());
+
+        assertTrue(publisher.rebuild(allies -> allies.add(A)));
+        assertEquals(2, publisher.get().getVersion());
+        // La foto anterior no cambia
+        assertEquals(2, first.size());
+    }
+
+    @Test
+    public void keepsExistingSlotsAndAppendsNewAllies() {
+        RosterPublisher<Object> publisher = new RosterPublisher<>();
+        publisher.rebuild(allies -> allies.addAll(Arrays.asList(A, B)));
+
+        publisher.rebuild(allies -> allies.addAll(Arrays.asList(C, B, A)));
+        assertEquals(Arrays.asList(A, B, C), publisher.get().asList());
+
+        publisher.rebuild(allies -> allies.addAll(Arrays.asList(C, B)));
+        assertEquals(Arrays.asList(B, C), publisher.get().asList());
+        assertEquals(-1, publisher.get().indexOf(A));
+    }
+
+    @Test
+    public void invalidationDuringRebuildForcesAnotherPass() {
+        RosterPublisher<Object> publisher = new RosterPublisher<>();
+        publisher.rebuild(allies -> {
+            allies.add(A);
+            publisher.invalidate();
+        });
+        assertTrue(publisher.isDirty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotViewIsReadOnly() {
+        RosterPublisher<Object> publisher = new RosterPublisher<>();
+        publisher.rebuild(allies -> allies.add(A));
+        publisher.get().asList().add(B);
+    }
+
+    /**
+     * Un hilo cambia el roster (entradas/salidas de jugadores) e invalida, el
+     * escritor reconstruye como pollRosterChanges y varios lectores recorren la
+     * foto como el render. Ningún lector puede ver una foto incoherente ni
+     * retroceder de versión, y al final el roster publicado es el último.
+     */
+    @Test
+    public void rosterChurnDuringRenderingIsConsistent() throws InterruptedException {
+        final int readers = 4;
+        final long durationMillis = 300;
+        final Object[] pool = new Object[8];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Object();
+        }
+
+        RosterPublisher<Object> publisher = new RosterPublisher<>();
+        AtomicReference<List<Object>> source = new AtomicReference<>(Collections.emptyList());
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> {
+            Random random = new Random(1);
+            await(start);
+            while (running.get()) {
+                List<Object> next = new ArrayList<>();
+                for (Object ally : pool) {
+                    if (random.nextBoolean()) {
+                        next.add(ally);
+                    }
+                }
+                Collections.shuffle(next, random);
+                source.set(next);
+                publisher.invalidate();
+            }
+        }, "churn"));
+
+        threads.add(new Thread(() -> {
+            await(start);
+            while (running.get()) {
+                if (publisher.isDirty()) {
+                    publisher.rebuild(allies -> allies.addAll(source.get()));
+                }
+            }
+        }, "writer"));
+
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                int lastVersion = 0;
+                try {
+                    while (running.get()) {
+                        RosterSnapshot<Object> roster = publisher.get();
+                        assertTrue(roster.getVersion() >= lastVersion);
+                        lastVersion = roster.getVersion();
+
+                        List<Object> view = roster.asList();
+                        assertEquals(roster.size(), view.size());
+                        HashSet<Object> seen = new HashSet<>();
+                        for (int i = 0; i < roster.size(); i++) {
+                            Object ally = roster.get(i);
+                            assertSame(ally, view.get(i));
+                            assertEquals(i, roster.indexOf(ally));
+                            assertTrue(seen.add(ally));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "render-" + r));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        Thread.sleep(durationMillis);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join(5000);
+            if (thread.isAlive()) {
+                fail("El hilo " + thread.getName() + " no terminó");
+            }
+        }
+
+        assertNull(failure.get());
+        assertTrue(publisher.get().getVersion() > 0);
+
+        // La última invalidación no se pierde: una pasada más publica el roster final
+        if (publisher.isDirty()) {
+            publisher.rebuild(allies -> allies.addAll(source.get()));
+        }
+        assertFalse(publisher.isDirty());
+        assertEquals(new HashSet<>(source.get()), new HashSet<>(publisher.get().asList()));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
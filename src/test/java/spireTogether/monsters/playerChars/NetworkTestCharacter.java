@@ -0,0 +1,7 @@
+package spireTogether.monsters.playerChars;
+
+/**
+ * Clase con el nombre de un jugador de red de TiS, para AllyProviderTest
+ */
+public class NetworkTestCharacter {
+}